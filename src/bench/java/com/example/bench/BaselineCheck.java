@@ -0,0 +1,126 @@
+package com.example.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 基准结果与基线对比
+ * 用法：BaselineCheck <jmh-result.json> <baseline.json> [--write]
+ * 1. 默认模式：耗时或单次分配字节数超出基线容差即判定为回退，进程以非 0 退出
+ * 2. --write：用本次 JMH 结果重写基线文件（在基准机器上更新基线时使用），
+ *    同时记录 JMH/JDK 版本与机器描述（-Dbench.hardware，未指定时取 CPU 架构与核数）
+ * 3. 基线文件不存在视为失败；只想查看结果时用 -Djmh.baseline.skip 跳过对比
+ */
+public final class BaselineCheck {
+
+    private static final String ALLOC_METRIC_SUFFIX = "gc.alloc.rate.norm";
+
+    private BaselineCheck() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("用法: BaselineCheck <jmh-result.json> <baseline.json> [--write]");
+            System.exit(2);
+        }
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode results = objectMapper.readTree(new File(args[0]));
+        File baselineFile = new File(args[1]);
+        if (args.length > 2 && "--write".equals(args[2])) {
+            writeBaseline(objectMapper, results, baselineFile);
+            return;
+        }
+
+        if (!baselineFile.exists()) {
+            System.err.printf("基线文件不存在: %s%n", baselineFile.getAbsolutePath());
+            System.err.println("在基准机器上运行基准后使用 --write 由本次 JMH 结果生成基线，或以 -Djmh.baseline.skip 跳过对比");
+            System.exit(1);
+        }
+        JsonNode baseline = objectMapper.readTree(baselineFile);
+        double timeTolerance = baseline.path("tolerance").path("time").asDouble(0.25);
+        double allocTolerance = baseline.path("tolerance").path("alloc").asDouble(0.10);
+        Map<String, JsonNode> expected = new HashMap<>();
+        for (JsonNode entry : baseline.path("benchmarks")) {
+            expected.put(key(entry.path("benchmark").asText(), entry.path("params")), entry);
+        }
+
+        int regressions = 0;
+        for (JsonNode result : results) {
+            String key = key(result.path("benchmark").asText(), result.path("params"));
+            JsonNode base = expected.get(key);
+            if (base == null) {
+                System.out.printf("[新增] %s%n", key);
+                continue;
+            }
+            double score = result.path("primaryMetric").path("score").asDouble();
+            double baseScore = base.path("score").asDouble();
+            boolean slower = score > baseScore * (1 + timeTolerance);
+            double alloc = allocPerOp(result);
+            double baseAlloc = base.path("allocBytesPerOp").asDouble(-1);
+            boolean heavier = alloc >= 0 && baseAlloc >= 0 && alloc > baseAlloc * (1 + allocTolerance);
+            if (slower || heavier) {
+                regressions++;
+            }
+            System.out.printf("[%s] %s 耗时 %.4f / 基线 %.4f %s，分配 %.0f / 基线 %.0f B/op%n",
+                    slower || heavier ? "回退" : "通过", key, score, baseScore,
+                    result.path("primaryMetric").path("scoreUnit").asText(), alloc, baseAlloc);
+        }
+        System.out.printf("共 %d 项，回退 %d 项（耗时容差 %.0f%%，分配容差 %.0f%%）%n",
+                results.size(), regressions, timeTolerance * 100, allocTolerance * 100);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static void writeBaseline(ObjectMapper objectMapper, JsonNode results, File baselineFile) throws IOException {
+        ObjectNode baseline = objectMapper.createObjectNode();
+        JsonNode previous = baselineFile.exists() ? objectMapper.readTree(baselineFile) : objectMapper.createObjectNode();
+        JsonNode first = results.path(0);
+        baseline.put("source", "JMH " + first.path("jmhVersion").asText() + ", " + first.path("vmName").asText()
+                + " " + first.path("jdkVersion").asText());
+        baseline.put("hardware", System.getProperty("bench.hardware", System.getProperty("os.name") + " "
+                + System.getProperty("os.arch") + ", " + Runtime.getRuntime().availableProcessors() + " 核"));
+        baseline.set("tolerance", previous.has("tolerance") ? previous.get("tolerance")
+                : objectMapper.createObjectNode().put("time", 0.25).put("alloc", 0.10));
+        ArrayNode benchmarks = baseline.putArray("benchmarks");
+        for (JsonNode result : results) {
+            ObjectNode entry = benchmarks.addObject();
+            entry.put("benchmark", result.path("benchmark").asText());
+            entry.set("params", result.path("params").isMissingNode() ? objectMapper.createObjectNode() : result.get("params"));
+            entry.put("score", result.path("primaryMetric").path("score").asDouble());
+            entry.put("unit", result.path("primaryMetric").path("scoreUnit").asText());
+            entry.put("allocBytesPerOp", Math.round(allocPerOp(result)));
+        }
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(baselineFile, baseline);
+        System.out.printf("基线已更新: %s（%d 项）%n", baselineFile.getAbsolutePath(), benchmarks.size());
+    }
+
+    /**
+     * JMH -prof gc 输出的单次操作分配字节数，未开启 gc 剖析时返回 -1
+     */
+    private static double allocPerOp(JsonNode result) {
+        Iterator<Map.Entry<String, JsonNode>> metrics = result.path("secondaryMetrics").fields();
+        while (metrics.hasNext()) {
+            Map.Entry<String, JsonNode> metric = metrics.next();
+            if (metric.getKey().endsWith(ALLOC_METRIC_SUFFIX)) {
+                return metric.getValue().path("score").asDouble();
+            }
+        }
+        return -1;
+    }
+
+    private static String key(String benchmark, JsonNode params) {
+        Map<String, String> sorted = new TreeMap<>();
+        params.fields().forEachRemaining(param -> sorted.put(param.getKey(), param.getValue().asText()));
+        return sorted.isEmpty() ? benchmark : benchmark + sorted;
+    }
+}
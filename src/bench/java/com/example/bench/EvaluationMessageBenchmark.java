@@ -0,0 +1,51 @@
+package com.example.bench;
+
+import com.example.model.TestCase;
+import com.example.service.EvaluationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 评测请求消息构建（EvaluationService.buildUserMessage）：PRD + 测试用例 JSON 序列化
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EvaluationMessageBenchmark {
+
+    @Param({"50", "500", "5000"})
+    public int testCaseCount;
+
+    private ObjectMapper objectMapper;
+    private String prd;
+    private List<TestCase> testCases;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        prd = PrdCorpus.prd(50 * 1024, true);
+        testCases = PrdCorpus.testCases(testCaseCount);
+    }
+
+    @Benchmark
+    public String buildUserMessage() {
+        return EvaluationService.buildUserMessage(objectMapper, prd, testCases);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.bench;
+
+import com.example.model.TestCase;
+import com.example.util.LlmJsonStreamParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 阶段3 输出解析（TestCaseService.parseLlmResponse 的实现）：整段解析与模拟流式分片喂入
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LlmResponseParseBenchmark {
+
+    // 流式输出的单个增量片段大小（字符）
+    private static final int STREAM_DELTA_CHARS = 16;
+
+    @Param({"100", "500", "2000"})
+    public int sizeKb;
+
+    private ObjectMapper objectMapper;
+    private String output;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        output = PrdCorpus.llmOutput(objectMapper, sizeKb * 1024);
+    }
+
+    @Benchmark
+    public List<TestCase> parseAll() {
+        return LlmJsonStreamParser.parseAll(objectMapper, output, TestCase.class);
+    }
+
+    @Benchmark
+    public int parseStreaming() {
+        LlmJsonStreamParser<TestCase> parser = new LlmJsonStreamParser<>(objectMapper, TestCase.class);
+        int count = 0;
+        for (int i = 0; i < output.length(); i += STREAM_DELTA_CHARS) {
+            count += parser.feed(output.subSequence(i, Math.min(i + STREAM_DELTA_CHARS, output.length()))).size();
+        }
+        return count + parser.finish().size();
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.bench;
+
+import com.example.model.TestCase;
+import com.example.service.TestCaseDeduplicator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 近似去重（MinHash + LSH）：合成语料由少量模板组合而成，用例之间高度相似，接近分桶的最坏情况
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NearDuplicateBenchmark {
+
+    @Param({"1000", "10000"})
+    public int testCaseCount;
+
+    private TestCaseDeduplicator deduplicator;
+    private List<TestCase> testCases;
+
+    @Setup
+    public void setUp() {
+        deduplicator = new TestCaseDeduplicator(null);
+        testCases = PrdCorpus.testCases(testCaseCount);
+    }
+
+    @Benchmark
+    public int[] duplicateOf() {
+        return deduplicator.duplicateOf(testCases);
+    }
+}
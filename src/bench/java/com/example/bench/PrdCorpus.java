@@ -0,0 +1,121 @@
+package com.example.bench;
+
+import com.example.model.TestCase;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 基准测试用的合成语料（固定随机种子，每次生成内容一致）
+ * 1. PRD：labeled 风格含“功能：/需求：”标注行，paragraph 风格只有章节与段落
+ * 2. 大模型输出：```json 代码块包裹的测试用例数组，steps 混合字符串、字符串数组与对象数组三种形态
+ * 直接运行 main 可将语料写入目录（默认 target/bench-corpus）便于人工检查
+ */
+public final class PrdCorpus {
+
+    private static final long SEED = 20240601L;
+
+    private static final String[] MODULES = {
+            "用户登录", "订单管理", "支付结算", "商品搜索", "消息通知",
+            "权限配置", "报表导出", "购物车", "优惠券", "会员积分"
+    };
+    private static final String[] ACTIONS = {
+            "提交表单", "查询列表", "导出数据", "修改配置", "删除记录", "批量导入", "审批流程", "发送通知"
+    };
+    private static final String[] RULES = {
+            "手机号必须为 11 位数字", "密码长度为 8 到 20 位且包含字母和数字", "单笔金额不超过 50000 元",
+            "同一用户每分钟最多请求 10 次", "关键词长度不超过 50 个字符", "超过 30 分钟未支付的订单自动取消",
+            "仅管理员可以修改该配置", "导出数据不超过 10000 行"
+    };
+
+    private PrdCorpus() {
+    }
+
+    /**
+     * 生成约 targetChars 个字符的 PRD
+     */
+    public static String prd(int targetChars, boolean labeled) {
+        Random random = new Random(SEED + targetChars + (labeled ? 1 : 0));
+        StringBuilder sb = new StringBuilder(targetChars + 512);
+        sb.append("# 电商平台产品需求文档\n\n## 一、背景\n\n本期迭代聚焦交易链路体验优化，覆盖下单、支付、售后与运营配置等场景。\n\n");
+        int section = 1;
+        while (sb.length() < targetChars) {
+            String module = MODULES[random.nextInt(MODULES.length)];
+            sb.append("## ").append(section).append(". ").append(module).append("\n\n");
+            if (labeled) {
+                sb.append("功能：").append(module).append("支持用户").append(ACTIONS[random.nextInt(ACTIONS.length)])
+                        .append("，并在操作完成后展示结果提示\n");
+                sb.append("需求：").append(RULES[random.nextInt(RULES.length)]).append("\n\n");
+            }
+            int paragraphs = 2 + random.nextInt(3);
+            for (int p = 0; p < paragraphs; p++) {
+                sb.append(section).append('.').append(p + 1).append(' ').append(module).append("规则说明\n\n");
+                sb.append("用户进入").append(module).append("页面后，可以").append(ACTIONS[random.nextInt(ACTIONS.length)])
+                        .append("。系统校验规则：").append(RULES[random.nextInt(RULES.length)])
+                        .append("；校验失败时在输入框下方提示具体原因。操作步骤：打开").append(module)
+                        .append("页面，填写必填字段，点击确认按钮。异常情况下需记录操作日志并支持重试。\n\n");
+            }
+            section++;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 生成约 targetBytes 字节（UTF-8）的大模型输出
+     */
+    public static String llmOutput(ObjectMapper objectMapper, int targetBytes) {
+        List<TestCase> testCases = testCases(Math.max(1, targetBytes / 420));
+        try {
+            return "```json\n" + objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(testCases) + "\n```";
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 生成 count 条测试用例，steps 依次为字符串数组、单个字符串、对象数组
+     */
+    public static List<TestCase> testCases(int count) {
+        Random random = new Random(SEED + count);
+        List<TestCase> testCases = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String module = MODULES[random.nextInt(MODULES.length)];
+            String action = ACTIONS[random.nextInt(ACTIONS.length)];
+            Object steps = switch (i % 3) {
+                case 0 -> List.of("打开" + module + "页面", "执行" + action, "检查页面提示与数据状态");
+                case 1 -> "打开" + module + "页面并" + action + "，检查结果";
+                default -> List.of(
+                        Map.of("step", "打开" + module + "页面", "expected", "页面正常加载"),
+                        Map.of("step", action, "expected", "操作成功并给出提示"));
+            };
+            testCases.add(new TestCase(
+                    "TC" + (i + 1) + " 验证" + module + action + "（规则：" + RULES[random.nextInt(RULES.length)] + "）",
+                    "用户已登录，具备" + module + "操作权限",
+                    steps,
+                    "操作结果符合需求，数据正确落库，页面提示与规则一致"));
+        }
+        return testCases;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Paths.get(args.length > 0 ? args[0] : "target/bench-corpus");
+        Files.createDirectories(dir);
+        ObjectMapper objectMapper = new ObjectMapper();
+        for (int kb : new int[]{2, 50, 500, 2000}) {
+            Files.writeString(dir.resolve("prd-labeled-" + kb + "k.md"), prd(kb * 1024, true), StandardCharsets.UTF_8);
+            Files.writeString(dir.resolve("prd-paragraph-" + kb + "k.md"), prd(kb * 1024, false), StandardCharsets.UTF_8);
+        }
+        for (int kb : new int[]{100, 500, 2000}) {
+            Files.writeString(dir.resolve("llm-output-" + kb + "k.txt"), llmOutput(objectMapper, kb * 1024), StandardCharsets.UTF_8);
+        }
+        System.out.println("语料已写入 " + dir.toAbsolutePath());
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.bench;
+
+import com.example.model.TestCase;
+import com.example.service.TestCaseServiceOld;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 规则引擎兜底生成（TestCaseServiceOld.generateTestCases），覆盖小到超大 PRD 与两种 PRD 风格
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RuleEngineBenchmark {
+
+    @Param({"2", "50", "500", "2000"})
+    public int prdKb;
+
+    @Param({"labeled", "paragraph"})
+    public String style;
+
+    private TestCaseServiceOld ruleEngine;
+    private String prd;
+
+    @Setup
+    public void setUp() {
+        ruleEngine = new TestCaseServiceOld();
+        prd = PrdCorpus.prd(prdKb * 1024, "labeled".equals(style));
+    }
+
+    @Benchmark
+    public List<TestCase> generateTestCases() {
+        return ruleEngine.generateTestCases(prd);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.bench;
+
+import com.example.model.TestCase;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TestCase 的 Jackson 绑定：steps 为 Object 类型（字符串 / 字符串数组 / 对象数组），反序列化走 untyped 路径
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TestCaseBindingBenchmark {
+
+    private static final TypeReference<List<TestCase>> TEST_CASE_LIST = new TypeReference<>() {
+    };
+
+    @Param({"100", "1000"})
+    public int testCaseCount;
+
+    private ObjectMapper objectMapper;
+    private List<TestCase> testCases;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        testCases = PrdCorpus.testCases(testCaseCount);
+        json = objectMapper.writeValueAsBytes(testCases);
+    }
+
+    @Benchmark
+    public List<TestCase> deserialize() throws IOException {
+        return objectMapper.readValue(json, TEST_CASE_LIST);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(testCases);
+    }
+}
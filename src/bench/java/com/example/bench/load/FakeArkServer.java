@@ -0,0 +1,270 @@
+package com.example.bench.load;
+
+import com.example.bench.PrdCorpus;
+import com.example.util.VirtualThreads;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地模拟的方舟 chat/completions 服务
+ * 1. 按请求的 model 区分阶段：压测工具把各阶段模型配置为 fake-step1 / fake-step2 / fake-step3 / fake-evaluation
+ * 2. 首包前按延迟分布等待；按比例注入 429、5xx 与被截断的输出（finish_reason=length）
+ * 3. stream=true 时按固定分片与间隔输出 SSE，以 data: [DONE] 结束
+ */
+public class FakeArkServer {
+
+    public static final String MODEL_PREFIX = "fake-";
+
+    private final ObjectMapper objectMapper;
+    private final LatencyDistribution latency;
+    private final double throttleRate;
+    private final double errorRate;
+    private final double truncateRate;
+    private final int functionPoints;
+    private final int testCases;
+    private final int streamChunkChars;
+    private final long streamIntervalMs;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong streamCalls = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong serverErrors = new AtomicLong();
+    private final AtomicLong truncated = new AtomicLong();
+    private final Map<String, AtomicLong> callsByStage = new LinkedHashMap<>();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public FakeArkServer(ObjectMapper objectMapper, LoadTestOptions options) {
+        this.objectMapper = objectMapper;
+        this.latency = options.getLatency("ark.latency");
+        this.throttleRate = options.getDouble("ark.throttle-rate");
+        this.errorRate = options.getDouble("ark.error-rate");
+        this.truncateRate = options.getDouble("ark.truncate-rate");
+        this.functionPoints = options.getInt("ark.function-points");
+        this.testCases = options.getInt("ark.test-cases");
+        this.streamChunkChars = options.getInt("ark.stream-chunk-chars");
+        this.streamIntervalMs = options.getInt("ark.stream-interval-ms");
+        for (String stage : new String[]{"step1", "step2", "step3", "evaluation", "other"}) {
+            callsByStage.put(stage, new AtomicLong());
+        }
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        executor = newExecutor("fake-ark-");
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 作为 volc.ark.base-url 的地址
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/api/v3";
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("calls", calls.get());
+        stats.put("streamCalls", streamCalls.get());
+        stats.put("throttled", throttled.get());
+        stats.put("serverErrors", serverErrors.get());
+        stats.put("truncated", truncated.get());
+        Map<String, Long> byStage = new LinkedHashMap<>();
+        callsByStage.forEach((stage, count) -> byStage.put(stage, count.get()));
+        stats.put("callsByStage", byStage);
+        return stats;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestURI().getPath().endsWith("/chat/completions")) {
+                send(exchange, 404, "application/json", error("NotFound", "unknown path"));
+                return;
+            }
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            String model = request.path("model").asText();
+            String stage = model.startsWith(MODEL_PREFIX) ? model.substring(MODEL_PREFIX.length()) : "other";
+            callsByStage.getOrDefault(stage, callsByStage.get("other")).incrementAndGet();
+            calls.incrementAndGet();
+
+            sleep(latency.sampleMillis());
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextDouble() < throttleRate) {
+                throttled.incrementAndGet();
+                send(exchange, 429, "application/json", error("RateLimitExceeded", "模拟限流"));
+                return;
+            }
+            if (random.nextDouble() < errorRate) {
+                serverErrors.incrementAndGet();
+                send(exchange, 500, "application/json", error("InternalServiceError", "模拟服务端错误"));
+                return;
+            }
+
+            String content = content(stage);
+            String finishReason = "stop";
+            if (random.nextDouble() < truncateRate) {
+                truncated.incrementAndGet();
+                content = content.substring(0, content.length() / 2 + random.nextInt(content.length() / 2));
+                finishReason = "length";
+            }
+            long promptTokens = request.path("messages").toString().length() / 2;
+            if (request.path("stream").asBoolean(false)) {
+                streamCalls.incrementAndGet();
+                stream(exchange, model, content, finishReason);
+            } else {
+                send(exchange, 200, "application/json", completion(model, content, finishReason, promptTokens));
+            }
+        }
+    }
+
+    private byte[] completion(String model, String content, String finishReason, long promptTokens) throws IOException {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("id", "fake-" + UUID.randomUUID());
+        body.put("object", "chat.completion");
+        body.put("created", System.currentTimeMillis() / 1000);
+        body.put("model", model);
+        ObjectNode choice = body.putArray("choices").addObject();
+        choice.put("index", 0);
+        choice.putObject("message").put("role", "assistant").put("content", content);
+        choice.put("finish_reason", finishReason);
+        long completionTokens = content.length() / 2;
+        body.putObject("usage")
+                .put("prompt_tokens", promptTokens)
+                .put("completion_tokens", completionTokens)
+                .put("total_tokens", promptTokens + completionTokens);
+        return objectMapper.writeValueAsBytes(body);
+    }
+
+    private void stream(HttpExchange exchange, String model, String content, String finishReason) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        String id = "fake-" + UUID.randomUUID();
+        for (int i = 0; i < content.length(); i += streamChunkChars) {
+            String delta = content.substring(i, Math.min(i + streamChunkChars, content.length()));
+            writeEvent(out, chunk(id, model, delta, null));
+            sleep(streamIntervalMs);
+        }
+        writeEvent(out, chunk(id, model, "", finishReason));
+        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private String chunk(String id, String model, String delta, String finishReason) throws IOException {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("id", id);
+        body.put("object", "chat.completion.chunk");
+        body.put("created", System.currentTimeMillis() / 1000);
+        body.put("model", model);
+        ObjectNode choice = body.putArray("choices").addObject();
+        choice.put("index", 0);
+        choice.putObject("delta").put("role", "assistant").put("content", delta);
+        choice.put("finish_reason", finishReason);
+        return objectMapper.writeValueAsString(body);
+    }
+
+    private void writeEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * 各阶段的模拟输出
+     */
+    private String content(String stage) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (stage) {
+            case "step1": {
+                ArrayNode points = objectMapper.createArrayNode();
+                for (int i = 1; i <= functionPoints; i++) {
+                    points.addObject()
+                            .put("id", "F" + i)
+                            .put("name", "功能点" + i + "-" + random.nextInt(1000))
+                            .put("description", "功能点" + i + "的可测试说明：输入校验、按钮操作与结果提示");
+                }
+                return objectMapper.writeValueAsString(points);
+            }
+            case "step2": {
+                ArrayNode scenarios = objectMapper.createArrayNode();
+                for (int i = 1; i <= functionPoints; i++) {
+                    ObjectNode scenario = scenarios.addObject().put("functionId", "F" + i);
+                    scenario.putArray("scenarios").add("正常流程").add("边界值").add("异常输入");
+                }
+                return objectMapper.writeValueAsString(scenarios);
+            }
+            case "evaluation": {
+                ObjectNode score = objectMapper.createObjectNode();
+                score.put("coverage", 60 + random.nextInt(40));
+                score.put("quality", 60 + random.nextInt(40));
+                score.put("nonRedundancy", 60 + random.nextInt(40));
+                return objectMapper.writeValueAsString(score);
+            }
+            default:
+                return "```json\n" + objectMapper.writerWithDefaultPrettyPrinter()
+                        .writeValueAsString(PrdCorpus.testCases(testCases)) + "\n```";
+        }
+    }
+
+    private byte[] error(String code, String message) throws IOException {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.putObject("error").put("code", code).put("message", message).put("type", code);
+        return objectMapper.writeValueAsBytes(body);
+    }
+
+    static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    /**
+     * 模拟服务的请求处理线程：支持时每个请求一个虚拟线程，否则为带名称前缀的缓存线程池（便于从应用线程数中剔除）
+     */
+    static ExecutorService newExecutor(String threadPrefix) {
+        ExecutorService virtualExecutor = VirtualThreads.newPerTaskExecutor();
+        if (virtualExecutor != null) {
+            return virtualExecutor;
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, threadPrefix + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.bench.load;
+
+import com.example.bench.PrdCorpus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地模拟的飞书开放平台：tenant_access_token、docx 文档元数据（revision_id）与 raw_content 三个接口
+ * 文档内容为固定大小的合成 PRD 加版本号，按延迟分布等待后返回，按比例注入 5xx；
+ * 每次查询元数据时按比例模拟文档被编辑（版本号加一），用于验证按版本号的文档缓存
+ */
+public class FakeFeishuServer {
+
+    private static final String TOKEN_PATH = "/open-apis/auth/v3/tenant_access_token/internal";
+    private static final String DOCUMENT_PREFIX = "/open-apis/docx/v1/documents/";
+    private static final String RAW_CONTENT_SUFFIX = "/raw_content";
+
+    private final ObjectMapper objectMapper;
+    private final LatencyDistribution latency;
+    private final LatencyDistribution metadataLatency;
+    private final double errorRate;
+    private final double editRate;
+    private final String document;
+    private final Map<String, AtomicLong> revisions = new ConcurrentHashMap<>();
+
+    private final AtomicLong tokenCalls = new AtomicLong();
+    private final AtomicLong metadataCalls = new AtomicLong();
+    private final AtomicLong documentCalls = new AtomicLong();
+    private final AtomicLong serverErrors = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public FakeFeishuServer(ObjectMapper objectMapper, LoadTestOptions options) {
+        this.objectMapper = objectMapper;
+        this.latency = options.getLatency("feishu.latency");
+        this.metadataLatency = options.getLatency("feishu.metadata-latency");
+        this.errorRate = options.getDouble("feishu.error-rate");
+        this.editRate = options.getDouble("feishu.edit-rate");
+        this.document = PrdCorpus.prd(options.getInt("feishu.doc-kb") * 1024, true);
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        executor = FakeArkServer.newExecutor("fake-feishu-");
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 作为 feishu.base-url 的地址
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tokenCalls", tokenCalls.get());
+        stats.put("metadataCalls", metadataCalls.get());
+        stats.put("documentCalls", documentCalls.get());
+        stats.put("serverErrors", serverErrors.get());
+        return stats;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getRequestBody().readAllBytes();
+            String path = exchange.getRequestURI().getPath();
+            ObjectNode body = objectMapper.createObjectNode();
+            if (path.equals(TOKEN_PATH)) {
+                tokenCalls.incrementAndGet();
+                body.put("code", 0).put("msg", "ok").put("tenant_access_token", "t-fake-token").put("expire", 7200);
+                FakeArkServer.send(exchange, 200, "application/json", objectMapper.writeValueAsBytes(body));
+                return;
+            }
+            if (!path.startsWith(DOCUMENT_PREFIX)) {
+                body.put("code", 404).put("msg", "not found");
+                FakeArkServer.send(exchange, 404, "application/json", objectMapper.writeValueAsBytes(body));
+                return;
+            }
+
+            String documentId = path.substring(DOCUMENT_PREFIX.length());
+            if (!documentId.endsWith(RAW_CONTENT_SUFFIX)) {
+                metadataCalls.incrementAndGet();
+                FakeArkServer.sleep(metadataLatency.sampleMillis());
+                AtomicLong revision = revision(documentId);
+                if (ThreadLocalRandom.current().nextDouble() < editRate) {
+                    revision.incrementAndGet();
+                }
+                body.put("code", 0).put("msg", "success");
+                body.putObject("data").putObject("document")
+                        .put("document_id", documentId)
+                        .put("revision_id", revision.get())
+                        .put("title", "模拟文档 " + documentId);
+                FakeArkServer.send(exchange, 200, "application/json", objectMapper.writeValueAsBytes(body));
+                return;
+            }
+
+            documentCalls.incrementAndGet();
+            FakeArkServer.sleep(latency.sampleMillis());
+            if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                serverErrors.incrementAndGet();
+                body.put("code", 1500).put("msg", "模拟服务端错误");
+                FakeArkServer.send(exchange, 500, "application/json", objectMapper.writeValueAsBytes(body));
+                return;
+            }
+            long revision = revision(documentId.substring(0, documentId.length() - RAW_CONTENT_SUFFIX.length())).get();
+            body.put("code", 0).put("msg", "success");
+            body.putObject("data").put("content", document + "\n修订版本：" + revision);
+            FakeArkServer.send(exchange, 200, "application/json", objectMapper.writeValueAsBytes(body));
+        }
+    }
+
+    private AtomicLong revision(String documentId) {
+        return revisions.computeIfAbsent(documentId, id -> new AtomicLong(1));
+    }
+}
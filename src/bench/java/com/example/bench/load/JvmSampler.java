@@ -0,0 +1,114 @@
+package com.example.bench.load;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压测期间定时采样 JVM 线程数与堆使用量
+ * 压测工具、模拟服务与被测应用在同一进程内，应用线程数剔除了压测侧线程（按名称前缀识别）
+ */
+public class JvmSampler {
+
+    private static final long INTERVAL_MS = 500;
+    private static final String[] HARNESS_THREAD_PREFIXES = {
+            "loadtest-", "fake-ark-", "fake-feishu-", "HTTP-Dispatcher", "HttpClient-"
+    };
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "loadtest-sampler");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private int samples;
+    private int peakThreads;
+    private int peakAppThreads;
+    private long peakHeapUsed;
+    private long heapUsedSum;
+    private long gcCountAtReset;
+    private long gcTimeAtReset;
+
+    public void start() {
+        scheduler.scheduleAtFixedRate(this::sample, 0, INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 开始新一轮统计（每个压测场景一轮）
+     */
+    public synchronized void reset() {
+        samples = 0;
+        peakThreads = 0;
+        peakAppThreads = 0;
+        peakHeapUsed = 0;
+        heapUsedSum = 0;
+        gcCountAtReset = gcCount();
+        gcTimeAtReset = gcTimeMs();
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("peakThreads", peakThreads);
+        stats.put("peakAppThreads", peakAppThreads);
+        stats.put("peakHeapUsedMb", peakHeapUsed >> 20);
+        stats.put("avgHeapUsedMb", samples == 0 ? 0 : (heapUsedSum / samples) >> 20);
+        stats.put("maxHeapMb", memory.getHeapMemoryUsage().getMax() >> 20);
+        stats.put("gcCount", gcCount() - gcCountAtReset);
+        stats.put("gcTimeMs", gcTimeMs() - gcTimeAtReset);
+        return stats;
+    }
+
+    private void sample() {
+        int threads = 0;
+        int appThreads = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            threads++;
+            if (!isHarnessThread(thread.getName())) {
+                appThreads++;
+            }
+        }
+        long heapUsed = memory.getHeapMemoryUsage().getUsed();
+        synchronized (this) {
+            samples++;
+            peakThreads = Math.max(peakThreads, threads);
+            peakAppThreads = Math.max(peakAppThreads, appThreads);
+            peakHeapUsed = Math.max(peakHeapUsed, heapUsed);
+            heapUsedSum += heapUsed;
+        }
+    }
+
+    private static boolean isHarnessThread(String name) {
+        for (String prefix : HARNESS_THREAD_PREFIXES) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcTimeMs() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.bench.load;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 模拟服务的响应延迟分布（毫秒）
+ * 配置格式：
+ * 1. fixed:500          —— 固定 500ms
+ * 2. uniform:200:800    —— 200~800ms 均匀分布
+ * 3. lognormal:800:5000 —— 对数正态分布，中位数 800ms、p99 5000ms（大模型调用的长尾形态）
+ */
+public final class LatencyDistribution {
+
+    // 标准正态分布的 99 分位
+    private static final double Z_99 = 2.326;
+
+    private final String spec;
+    private final String type;
+    private final double a;
+    private final double b;
+
+    private LatencyDistribution(String spec, String type, double a, double b) {
+        this.spec = spec;
+        this.type = type;
+        this.a = a;
+        this.b = b;
+    }
+
+    public static LatencyDistribution parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        try {
+            switch (parts[0]) {
+                case "fixed":
+                    return new LatencyDistribution(spec, "fixed", Double.parseDouble(parts[1]), 0);
+                case "uniform":
+                    return new LatencyDistribution(spec, "uniform", Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                case "lognormal":
+                    double median = Double.parseDouble(parts[1]);
+                    double p99 = Double.parseDouble(parts[2]);
+                    if (median <= 0 || p99 < median) {
+                        throw new IllegalArgumentException("lognormal 需要 0 < 中位数 <= p99");
+                    }
+                    // a = ln(中位数)，b = sigma
+                    return new LatencyDistribution(spec, "lognormal", Math.log(median), Math.log(p99 / median) / Z_99);
+                default:
+                    throw new IllegalArgumentException("未知的延迟分布类型: " + parts[0]);
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("延迟分布格式错误: " + spec, e);
+        }
+    }
+
+    public long sampleMillis() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (type) {
+            case "fixed":
+                return (long) a;
+            case "uniform":
+                return (long) (a + random.nextDouble() * (b - a));
+            default:
+                return (long) Math.exp(a + b * random.nextGaussian());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
@@ -0,0 +1,423 @@
+package com.example.bench.load;
+
+import com.example.AiForTestApplication;
+import com.example.bench.PrdCorpus;
+import com.example.util.LatencyHistogram;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 离线端到端压测：在本进程内启动模拟方舟/飞书服务与被测应用，按固定并发驱动各接口
+ * 每个场景先预热再正式压测，报告吞吐、延迟分位、失败与兜底次数、线程数与堆使用量，结果同时写入 JSON 报告
+ * 用法见 README「离线压测」
+ */
+public class LoadTestHarness {
+
+    private static final int HISTOGRAM_WINDOW = 1 << 20;
+
+    private final LoadTestOptions options;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient;
+    private final JvmSampler jvmSampler = new JvmSampler();
+    private final AtomicInteger feishuDocIndex = new AtomicInteger();
+
+    private String baseUrl;
+    private String prdJson;
+    private String evaluateBody;
+    private String batchBody;
+
+    public LoadTestHarness(LoadTestOptions options) {
+        this.options = options;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newCachedThreadPool(r -> {
+                    Thread t = new Thread(r, "loadtest-http-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        new LoadTestHarness(options).run();
+        System.exit(0);
+    }
+
+    public void run() throws Exception {
+        FakeArkServer ark = new FakeArkServer(objectMapper, options);
+        FakeFeishuServer feishu = new FakeFeishuServer(objectMapper, options);
+        ark.start();
+        feishu.start();
+        ConfigurableApplicationContext context = null;
+        try {
+            context = SpringApplication.run(AiForTestApplication.class, appArgs(ark, feishu));
+            baseUrl = "http://127.0.0.1:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            prepareBodies();
+
+            jvmSampler.start();
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (String scenario : options.getScenarios()) {
+                results.add(runScenario(scenario));
+            }
+            jvmSampler.stop();
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("options", options.asMap());
+            report.put("appArgs", options.getAppArgs());
+            report.put("scenarios", results);
+            report.put("fakeArk", ark.stats());
+            report.put("fakeFeishu", feishu.stats());
+            report.put("feishuCache", fetchJson("/api/feishu/cache/stats"));
+            report.put("outbound", fetchJson("/api/diagnostics/outbound"));
+            report.put("rateLimit", fetchJson("/api/diagnostics/rate-limit"));
+            printReport(results, ark, feishu);
+            File reportFile = new File(options.getString("report"));
+            if (reportFile.getParentFile() != null) {
+                reportFile.getParentFile().mkdirs();
+            }
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(reportFile, report);
+            System.out.println("压测报告已写入 " + reportFile.getAbsolutePath());
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            ark.stop();
+            feishu.stop();
+        }
+    }
+
+    /**
+     * 被测应用参数：指向模拟服务、各阶段使用区分阶段的模型名；用户通过命令行显式传入的同名参数优先
+     */
+    private String[] appArgs(FakeArkServer ark, FakeFeishuServer feishu) {
+        Map<String, String> defaults = new LinkedHashMap<>();
+        defaults.put("server.port", "0");
+        defaults.put("volc.ark.enabled", "true");
+        defaults.put("volc.ark.api-key", "fake-api-key");
+        defaults.put("volc.ark.base-url", ark.baseUrl());
+        defaults.put("volc.ark.model", FakeArkServer.MODEL_PREFIX + "step3");
+        for (String stage : new String[]{"step1", "step2", "step3", "evaluation"}) {
+            defaults.put("volc.ark.stages." + stage + ".model", FakeArkServer.MODEL_PREFIX + stage);
+        }
+        defaults.put("feishu.app.id", "cli_fake_app");
+        defaults.put("feishu.app.secret", "fake-secret");
+        defaults.put("feishu.base-url", feishu.baseUrl());
+        defaults.put("pipeline.cache.file", "target/load-test/generation-cache.jsonl");
+
+        List<String> args = new ArrayList<>(options.getAppArgs());
+        for (Map.Entry<String, String> entry : defaults.entrySet()) {
+            String prefix = "--" + entry.getKey() + "=";
+            if (args.stream().noneMatch(arg -> arg.startsWith(prefix))) {
+                args.add(prefix + entry.getValue());
+            }
+        }
+        return args.toArray(new String[0]);
+    }
+
+    private void prepareBodies() throws IOException {
+        String prd = PrdCorpus.prd(options.getInt("prd-kb") * 1024, true);
+        ObjectNode generate = objectMapper.createObjectNode();
+        generate.put("prd", prd).put("bypassCache", true).put("diagnostics", true);
+        prdJson = objectMapper.writeValueAsString(generate);
+
+        // 批量请求中的 PRD 长度各不相同，避免批内去重
+        ObjectNode batch = objectMapper.createObjectNode();
+        batch.put("bypassCache", true);
+        ArrayNode prds = batch.putArray("prds");
+        for (int i = 0; i < options.getInt("batch-size"); i++) {
+            prds.add(PrdCorpus.prd(options.getInt("prd-kb") * 1024 + i * 512, true));
+        }
+        batchBody = objectMapper.writeValueAsString(batch);
+
+        ObjectNode evaluate = objectMapper.createObjectNode();
+        evaluate.put("prd", prd).put("diagnostics", true);
+        evaluate.set("testCases", objectMapper.valueToTree(PrdCorpus.testCases(options.getInt("evaluate-test-cases"))));
+        evaluateBody = objectMapper.writeValueAsString(evaluate);
+    }
+
+    private Map<String, Object> runScenario(String scenario) throws Exception {
+        int concurrency = options.getInt("concurrency");
+        System.out.printf("== 场景 %s：并发 %d，预热 %ds，压测 %ds%n", scenario, concurrency,
+                options.getInt("warmup-seconds"), options.getInt("duration-seconds"));
+        drive(scenario, concurrency, options.getInt("warmup-seconds"), null);
+
+        ScenarioStats stats = new ScenarioStats();
+        jvmSampler.reset();
+        long start = System.nanoTime();
+        drive(scenario, concurrency, options.getInt("duration-seconds"), stats);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("scenario", scenario);
+        result.put("concurrency", concurrency);
+        result.put("elapsedSeconds", Math.round(elapsedSeconds * 10) / 10.0);
+        result.put("requests", stats.requests.get());
+        result.put("succeeded", stats.succeeded.get());
+        result.put("failed", stats.failed.get());
+        result.put("fallbacks", stats.fallbacks.get());
+        result.put("throughput", Math.round(stats.requests.get() / elapsedSeconds * 100) / 100.0);
+        if ("batch".equals(scenario)) {
+            // 批量场景按 PRD 计的吞吐，便于与 generate 场景对比
+            result.put("prdThroughput", Math.round(stats.requests.get() * options.getInt("batch-size") / elapsedSeconds * 100) / 100.0);
+        }
+        result.put("latencyMs", stats.latency.stats());
+        if (stats.firstEvent.size() > 0) {
+            result.put("firstTestCaseMs", stats.firstEvent.stats());
+        }
+        result.put("jvm", jvmSampler.snapshot());
+        return result;
+    }
+
+    /**
+     * 闭环压测：concurrency 个线程各自循环发请求直到截止时间，截止时在途请求完成后计入结果
+     */
+    private void drive(String scenario, int concurrency, int seconds, ScenarioStats stats) throws Exception {
+        if (seconds <= 0) {
+            return;
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread t = new Thread(r, "loadtest-" + scenario + "-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(workers.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        Outcome outcome = execute(scenario);
+                        if (stats != null) {
+                            stats.record(outcome, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private Outcome execute(String scenario) {
+        try {
+            switch (scenario) {
+                case "generate":
+                    return jsonOutcome(post("/api/testcase/generate", prdJson));
+                case "evaluate":
+                    return jsonOutcome(post("/api/testcase/evaluate", evaluateBody));
+                case "feishu":
+                    return jsonOutcome(post("/api/feishu/fetch",
+                            "{\"url\":\"https://example.feishu.cn/docx/LoadTest" + nextFeishuDoc() + "\"}"));
+                case "stream":
+                    return streamOutcome();
+                case "batch":
+                    return batchOutcome();
+                default:
+                    throw new IllegalArgumentException("未知的压测场景: " + scenario);
+            }
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            return new Outcome(false, false, -1);
+        }
+    }
+
+    private HttpResponse<String> post(String path, String body) throws IOException, InterruptedException {
+        return httpClient.send(request(path, body).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.Builder request(String path, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(options.getInt("request-timeout-seconds")))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+    }
+
+    /**
+     * 普通接口：HTTP 200 且 success=true 视为成功，diagnostics.fallback=true 计为兜底
+     */
+    private Outcome jsonOutcome(HttpResponse<String> response) throws IOException {
+        if (response.statusCode() != 200) {
+            return new Outcome(false, false, -1);
+        }
+        JsonNode body = objectMapper.readTree(response.body());
+        return new Outcome(body.path("success").asBoolean(false),
+                body.path("diagnostics").path("fallback").asBoolean(false), -1);
+    }
+
+    /**
+     * 流式接口：收到 done 事件视为成功，同时记录首条测试用例事件的到达时间
+     */
+    /**
+     * feishu 场景的文档序号：设置了 feishu.distinct-docs 时在这些文档间轮流请求（验证文档缓存），否则每次一篇新文档
+     */
+    private int nextFeishuDoc() {
+        int index = feishuDocIndex.incrementAndGet();
+        int distinct = options.getInt("feishu.distinct-docs");
+        return distinct > 0 ? index % distinct : index;
+    }
+
+    private Outcome streamOutcome() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        HttpResponse<Stream<String>> response = httpClient.send(
+                request("/api/testcase/generate/stream", prdJson).header("Accept", "text/event-stream").build(),
+                HttpResponse.BodyHandlers.ofLines());
+        if (response.statusCode() != 200) {
+            response.body().close();
+            return new Outcome(false, false, -1);
+        }
+        long firstTestCaseMs = -1;
+        boolean done = false;
+        boolean fallback = false;
+        try (Stream<String> lines = response.body()) {
+            for (Iterator<String> it = lines.iterator(); it.hasNext(); ) {
+                String line = it.next();
+                if (line.startsWith("event:testcase") && firstTestCaseMs < 0) {
+                    firstTestCaseMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                } else if (line.startsWith("event:done")) {
+                    done = true;
+                } else if (line.startsWith("event:error")) {
+                    break;
+                } else if (line.startsWith("data:") && line.contains("\"stage\":\"fallback\"")) {
+                    fallback = true;
+                }
+            }
+        }
+        return new Outcome(done, fallback, firstTestCaseMs);
+    }
+
+    /**
+     * 批量接口：done 事件中 failed 为 0 视为成功
+     */
+    private Outcome batchOutcome() throws IOException, InterruptedException {
+        HttpResponse<Stream<String>> response = httpClient.send(
+                request("/api/testcase/batch/stream", batchBody).header("Accept", "text/event-stream").build(),
+                HttpResponse.BodyHandlers.ofLines());
+        if (response.statusCode() != 200) {
+            response.body().close();
+            return new Outcome(false, false, -1);
+        }
+        boolean doneEvent = false;
+        try (Stream<String> lines = response.body()) {
+            for (Iterator<String> it = lines.iterator(); it.hasNext(); ) {
+                String line = it.next();
+                if (line.startsWith("event:done")) {
+                    doneEvent = true;
+                } else if (doneEvent && line.startsWith("data:")) {
+                    JsonNode summary = objectMapper.readTree(line.substring("data:".length()));
+                    return new Outcome(summary.path("failed").asInt(-1) == 0, false, -1);
+                } else if (line.startsWith("event:error")) {
+                    break;
+                }
+            }
+        }
+        return new Outcome(false, false, -1);
+    }
+
+    private JsonNode fetchJson(String path) {
+        try {
+            HttpResponse<String> response = httpClient.send(
+                    HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(10)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            return objectMapper.readTree(response.body());
+        } catch (Exception e) {
+            return objectMapper.createObjectNode().put("error", String.valueOf(e.getMessage()));
+        }
+    }
+
+    private void printReport(List<Map<String, Object>> results, FakeArkServer ark, FakeFeishuServer feishu) {
+        System.out.println();
+        System.out.printf("%-10s %6s %8s %8s %6s %6s %10s %8s %8s %8s %8s %8s %8s %10s%n",
+                "场景", "并发", "请求数", "成功", "失败", "兜底", "吞吐/s", "p50", "p90", "p99", "max",
+                "应用线程", "峰值线程", "峰值堆MB");
+        for (Map<String, Object> result : results) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> latency = (Map<String, Object>) result.get("latencyMs");
+            @SuppressWarnings("unchecked")
+            Map<String, Object> jvm = (Map<String, Object>) result.get("jvm");
+            System.out.printf("%-10s %6s %8s %8s %6s %6s %10s %8s %8s %8s %8s %8s %8s %10s%n",
+                    result.get("scenario"), result.get("concurrency"), result.get("requests"), result.get("succeeded"),
+                    result.get("failed"), result.get("fallbacks"), result.get("throughput"),
+                    latency.get("p50"), latency.get("p90"), latency.get("p99"), latency.get("max"),
+                    jvm.get("peakAppThreads"), jvm.get("peakThreads"), jvm.get("peakHeapUsedMb"));
+            if (result.containsKey("firstTestCaseMs")) {
+                System.out.println("  首条用例到达(ms): " + result.get("firstTestCaseMs"));
+            }
+        }
+        System.out.println("模拟方舟: " + ark.stats());
+        System.out.println("模拟飞书: " + feishu.stats());
+    }
+
+    /**
+     * 单次请求结果；firstEventMs 仅流式接口有效
+     */
+    private static final class Outcome {
+        final boolean success;
+        final boolean fallback;
+        final long firstEventMs;
+
+        Outcome(boolean success, boolean fallback, long firstEventMs) {
+            this.success = success;
+            this.fallback = fallback;
+            this.firstEventMs = firstEventMs;
+        }
+    }
+
+    private static final class ScenarioStats {
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong succeeded = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong fallbacks = new AtomicLong();
+        final LatencyHistogram latency = new LatencyHistogram(HISTOGRAM_WINDOW);
+        final LatencyHistogram firstEvent = new LatencyHistogram(HISTOGRAM_WINDOW);
+
+        void record(Outcome outcome, long millis) {
+            requests.incrementAndGet();
+            (outcome.success ? succeeded : failed).incrementAndGet();
+            if (outcome.fallback) {
+                fallbacks.incrementAndGet();
+            }
+            latency.record(millis);
+            if (outcome.firstEventMs >= 0) {
+                firstEvent.record(outcome.firstEventMs);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.bench.load;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 压测参数：命令行 --key=value
+ * 下表中的键由压测工具与模拟服务使用，其余参数原样传给被测应用（如 --volc.ark.limit.requests-per-minute=6000）
+ */
+public final class LoadTestOptions {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        // 压测场景：generate / stream / batch / evaluate / feishu，逗号分隔，依次执行
+        DEFAULTS.put("scenarios", "generate,evaluate,feishu");
+        DEFAULTS.put("concurrency", "16");
+        DEFAULTS.put("duration-seconds", "60");
+        DEFAULTS.put("warmup-seconds", "10");
+        DEFAULTS.put("prd-kb", "20");
+        DEFAULTS.put("evaluate-test-cases", "50");
+        // batch 场景每个请求包含的 PRD 数
+        DEFAULTS.put("batch-size", "10");
+        DEFAULTS.put("request-timeout-seconds", "600");
+        DEFAULTS.put("report", "target/load-test-report.json");
+        // 模拟方舟：首包延迟分布、429/5xx 注入比例、截断输出比例、单次输出用例数、流式分片
+        DEFAULTS.put("ark.latency", "lognormal:1500:8000");
+        DEFAULTS.put("ark.throttle-rate", "0");
+        DEFAULTS.put("ark.error-rate", "0");
+        DEFAULTS.put("ark.truncate-rate", "0");
+        DEFAULTS.put("ark.function-points", "8");
+        DEFAULTS.put("ark.test-cases", "20");
+        DEFAULTS.put("ark.stream-chunk-chars", "24");
+        DEFAULTS.put("ark.stream-interval-ms", "15");
+        // 模拟飞书：全文/元数据接口延迟分布、5xx 注入比例、文档大小、每次查询元数据时文档被编辑的比例
+        DEFAULTS.put("feishu.latency", "lognormal:200:1500");
+        DEFAULTS.put("feishu.metadata-latency", "lognormal:30:200");
+        DEFAULTS.put("feishu.error-rate", "0");
+        DEFAULTS.put("feishu.doc-kb", "20");
+        DEFAULTS.put("feishu.edit-rate", "0");
+        // feishu 场景轮流请求的不同文档数，0 为每次请求一篇新文档
+        DEFAULTS.put("feishu.distinct-docs", "0");
+    }
+
+    private final Map<String, String> values = new LinkedHashMap<>(DEFAULTS);
+    private final List<String> appArgs = new ArrayList<>();
+
+    public static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("参数格式应为 --key=value: " + arg);
+            }
+            String key = arg.substring(2, arg.indexOf('='));
+            if (DEFAULTS.containsKey(key)) {
+                options.values.put(key, arg.substring(arg.indexOf('=') + 1));
+            } else {
+                options.appArgs.add(arg);
+            }
+        }
+        return options;
+    }
+
+    public String getString(String key) {
+        return values.get(key);
+    }
+
+    public int getInt(String key) {
+        return Integer.parseInt(values.get(key).trim());
+    }
+
+    public double getDouble(String key) {
+        return Double.parseDouble(values.get(key).trim());
+    }
+
+    public LatencyDistribution getLatency(String key) {
+        return LatencyDistribution.parse(values.get(key));
+    }
+
+    public List<String> getScenarios() {
+        List<String> scenarios = new ArrayList<>();
+        for (String scenario : values.get("scenarios").split(",")) {
+            if (!scenario.isBlank()) {
+                scenarios.add(scenario.trim());
+            }
+        }
+        return scenarios;
+    }
+
+    /**
+     * 透传给被测应用的参数
+     */
+    public List<String> getAppArgs() {
+        return appArgs;
+    }
+
+    public Map<String, String> asMap() {
+        return values;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.config;
+
+import com.example.util.VirtualThreads;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+@Slf4j
+public class ExecutorConfig {
+
+    // 三阶段流水线并发执行线程池（有界队列，队列满时由调用线程执行，形成天然背压）
+    // virtual 模式下每个子任务一个虚拟线程，并发上限交由 OutboundExecutor 的上游舱壁控制
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService pipelineExecutor(
+            @Value("${execution.mode:platform}") String mode,
+            @Value("${pipeline.executor.threads:8}") int threads,
+            @Value("${pipeline.executor.queue-capacity:64}") int queueCapacity) {
+        if ("virtual".equalsIgnoreCase(mode)) {
+            ExecutorService virtualExecutor = VirtualThreads.newPerTaskExecutor();
+            if (virtualExecutor != null) {
+                log.info("流水线执行器使用虚拟线程");
+                return virtualExecutor;
+            }
+            log.warn("当前 JDK 不支持虚拟线程，流水线执行器回退为平台线程池");
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "pipeline-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    // 异步生成任务线程池（有界队列，队列满时拒绝提交，由接口返回繁忙提示）
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService jobExecutor(
+            @Value("${pipeline.jobs.threads:4}") int threads,
+            @Value("${pipeline.jobs.queue-capacity:100}") int queueCapacity) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "generation-job-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    // 批量生成线程池：所有批量请求共享，线程数即同时在途的 PRD 数量（队列满时拒绝，对应条目返回繁忙提示）
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService batchExecutor(
+            @Value("${pipeline.batch.threads:8}") int threads,
+            @Value("${pipeline.batch.queue-capacity:500}") int queueCapacity) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "batch-generation-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    // 边生成边评测的分片评测线程池（与流水线线程池隔离；队列满时拒绝，分片留到生成结束后随完整用例集评测）
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService evaluationExecutor(
+            @Value("${evaluation.session.threads:4}") int threads,
+            @Value("${evaluation.session.queue-capacity:16}") int queueCapacity) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "evaluation-shard-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
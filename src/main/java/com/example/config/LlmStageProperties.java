@@ -0,0 +1,47 @@
+package com.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 大模型分阶段配置（volc.ark.stages / volc.ark.routing）
+ * 阶段名：step1 功能点解析、step2 场景规划、step3 用例生成、evaluation 评测；未配置的项沿用 volc.ark.model 与默认参数
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "volc.ark")
+public class LlmStageProperties {
+
+    private Map<String, StageOptions> stages = new LinkedHashMap<>();
+
+    private Routing routing = new Routing();
+
+    @Data
+    public static class StageOptions {
+        private String model;
+        private Double temperature;
+        private Integer maxTokens;
+        // 自适应路由的候选模型（为空时固定使用 model）
+        private List<String> candidates = new ArrayList<>();
+    }
+
+    @Data
+    public static class Routing {
+        // 按观测到的延迟与解析成功率在候选模型中选择
+        private boolean adaptive = false;
+        // 候选模型样本数不足时优先试用
+        private int minSamples = 10;
+        // 解析成功率低于该值的模型不参与按延迟择优
+        private double minSuccessRate = 0.9;
+        // 随机探索比例，保持各候选模型统计数据更新
+        private double exploreRatio = 0.05;
+        // 延迟指数滑动平均系数
+        private double latencyAlpha = 0.2;
+    }
+}
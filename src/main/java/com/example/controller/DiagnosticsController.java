@@ -0,0 +1,55 @@
+package com.example.controller;
+
+import com.example.model.RequestDiagnostics;
+import com.example.service.ArkRateLimiter;
+import com.example.service.OutboundExecutor;
+import com.example.service.RequestHedger;
+import com.example.service.RequestTracker;
+import com.example.service.StageModelRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/diagnostics")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class DiagnosticsController {
+
+    private final OutboundExecutor outboundExecutor;
+    private final ArkRateLimiter arkRateLimiter;
+    private final RequestHedger requestHedger;
+    private final StageModelRouter stageModelRouter;
+    private final RequestTracker requestTracker;
+
+    @GetMapping("/outbound")
+    public ResponseEntity<Map<String, Object>> outboundStats() {
+        return ResponseEntity.ok(outboundExecutor.stats());
+    }
+
+    @GetMapping("/rate-limit")
+    public ResponseEntity<Map<String, Object>> rateLimitStats() {
+        return ResponseEntity.ok(arkRateLimiter.stats());
+    }
+
+    @GetMapping("/latency")
+    public ResponseEntity<Map<String, Object>> latencyStats() {
+        return ResponseEntity.ok(requestHedger.stats());
+    }
+
+    @GetMapping("/routing")
+    public ResponseEntity<Map<String, Object>> routingStats() {
+        return ResponseEntity.ok(stageModelRouter.stats());
+    }
+
+    /**
+     * 耗时最长的 N 个请求（按耗时降序）
+     */
+    @GetMapping("/slow-requests")
+    public ResponseEntity<List<RequestDiagnostics>> slowRequests() {
+        return ResponseEntity.ok(requestTracker.slowRequests());
+    }
+}
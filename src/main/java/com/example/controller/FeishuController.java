@@ -1,13 +1,19 @@
 package com.example.controller;
 
+import com.example.dto.FeishuBatchRequest;
+import com.example.dto.FeishuBatchResponse;
 import com.example.dto.FeishuRequest;
 import com.example.dto.FeishuResponse;
+import com.example.service.FeishuBatchService;
+import com.example.service.FeishuDocumentCache;
 import com.example.service.FeishuService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/feishu")
 @RequiredArgsConstructor
@@ -15,6 +21,8 @@ import org.springframework.web.bind.annotation.*;
 public class FeishuController {
 
     private final FeishuService feishuService;
+    private final FeishuDocumentCache documentCache;
+    private final FeishuBatchService feishuBatchService;
 
     @PostMapping("/fetch")
     public ResponseEntity<FeishuResponse> fetchDocument(@Valid @RequestBody FeishuRequest request) {
@@ -25,5 +33,24 @@ public class FeishuController {
             return ResponseEntity.ok(FeishuResponse.error("获取文档内容失败: " + e.getMessage()));
         }
     }
-}
 
+    /**
+     * 批量获取：多个文档链接（或知识库链接按 depth 向下展开）在服务端并行获取，按顺序拼接后返回
+     */
+    @PostMapping("/fetch/batch")
+    public ResponseEntity<FeishuBatchResponse> fetchDocuments(@Valid @RequestBody FeishuBatchRequest request) {
+        try {
+            return ResponseEntity.ok(feishuBatchService.fetch(request.getUrls(), request.getDepth()));
+        } catch (Exception e) {
+            return ResponseEntity.ok(FeishuBatchResponse.error("批量获取文档内容失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 飞书文档缓存命中率等统计信息
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> cacheStats() {
+        return ResponseEntity.ok(documentCache.stats());
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.controller;
+
+import com.example.dto.GenerateRequest;
+import com.example.dto.JobResponse;
+import com.example.model.GenerationJob;
+import com.example.service.GenerationJobService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/testcase/jobs")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class GenerationJobController {
+
+    private final GenerationJobService generationJobService;
+
+    @PostMapping
+    public ResponseEntity<JobResponse> submit(@Valid @RequestBody GenerateRequest request) {
+        try {
+            GenerationJob job = generationJobService.submit(request.getPrd(), request.isBypassCache());
+            return ResponseEntity.ok(JobResponse.success("任务已提交", job));
+        } catch (Exception e) {
+            return ResponseEntity.ok(JobResponse.error("提交生成任务失败: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<JobResponse> get(@PathVariable String jobId) {
+        GenerationJob job = generationJobService.get(jobId);
+        if (job == null) {
+            return ResponseEntity.ok(JobResponse.error("任务不存在或已过期"));
+        }
+        return ResponseEntity.ok(JobResponse.success(job.getStatus().name(), job));
+    }
+
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<JobResponse> cancel(@PathVariable String jobId) {
+        GenerationJob job = generationJobService.cancel(jobId);
+        if (job == null) {
+            return ResponseEntity.ok(JobResponse.error("任务不存在或已过期"));
+        }
+        return ResponseEntity.ok(JobResponse.success("任务已取消", job));
+    }
+}
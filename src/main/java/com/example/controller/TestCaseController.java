@@ -1,15 +1,44 @@
 package com.example.controller;
 
+import com.example.dto.BatchGenerateRequest;
+import com.example.dto.BatchItemResult;
+import com.example.dto.CoverageResponse;
 import com.example.dto.EvaluationRequest;
 import com.example.dto.EvaluationResponse;
 import com.example.dto.GenerateRequest;
 import com.example.dto.GenerateResponse;
+import com.example.model.TestCase;
+import com.example.service.BatchGenerationListener;
+import com.example.service.BatchGenerationService;
+import com.example.service.CoverageService;
+import com.example.service.EvaluationCache;
 import com.example.service.EvaluationService;
+import com.example.service.GenerationCache;
+import com.example.service.LlmBusyException;
+import com.example.service.RequestTrace;
+import com.example.service.RequestTracker;
 import com.example.service.TestCaseService;
+import com.example.service.TestCaseStreamListener;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 
 @RestController
 @RequestMapping("/api/testcase")
@@ -17,31 +46,277 @@ import org.springframework.web.bind.annotation.*;
 @RequiredArgsConstructor
 //允许「所有前端域名」跨域访问
 @CrossOrigin(origins = "*")
-
+@Slf4j
 public class TestCaseController {
 
 //    private final TestCaseServiceOld testCaseService;
     private final TestCaseService testCaseService;
+    private final GenerationCache generationCache;
     private final EvaluationService evaluationService;
+    private final EvaluationCache evaluationCache;
+    private final ExecutorService jobExecutor;
+    private final RequestTracker requestTracker;
+    private final BatchGenerationService batchGenerationService;
+    private final CoverageService coverageService;
+
+    @Value("${pipeline.stream.timeout-ms:900000}")
+    private long streamTimeoutMs;
 
+    // 大模型调用繁忙时建议客户端的重试间隔
+    private static final int BUSY_RETRY_AFTER_SECONDS = 30;
+
+    /**
+     * 生成测试用例；evaluate 为 true 时在服务端直接评测，一次响应同时返回用例与评测结果，
+     * 前端无需再把 PRD 与用例上传到 /evaluate。生成仍走完整流水线（并行分组、增量生成、结果缓存均生效），
+     * 每个分组/章节完成后其用例即送入评测会话，已完成的分片与后续生成重叠评测
+     */
     @PostMapping("/generate")
     public ResponseEntity<GenerateResponse> generateTestCases(@Valid @RequestBody GenerateRequest request) {
+        RequestTrace trace = requestTracker.begin(request.isEvaluate() ? "generate-evaluate" : "generate");
+        EvaluationService.Session session = request.isEvaluate() ? evaluationService.openSession(request.getPrd()) : null;
         try{
-            var testCases = testCaseService.generateTestCases(request.getPrd());
-            return ResponseEntity.ok(GenerateResponse.success(testCases));
+            List<TestCase> testCases = testCaseService.generateTestCases(request.getPrd(), request.isBypassCache(),
+                    session == null ? TestCaseStreamListener.NOOP : new TestCaseStreamListener() {
+                        @Override
+                        public void onStage(String stage, String message) {
+                        }
+
+                        @Override
+                        public void onTestCase(TestCase testCase) {
+                            session.add(testCase);
+                        }
+                    });
+            GenerateResponse response = GenerateResponse.success(testCases);
+            if (session != null) {
+                response.setEvaluation(session.finish(testCases));
+            }
+            requestTracker.finish(trace);
+            if (request.isDiagnostics()) {
+                response.setDiagnostics(trace.snapshot());
+            }
+            if (request.isCoverage()) {
+                response.setCoverage(coverageService.report(request.getPrd(), testCases));
+            }
+            return ResponseEntity.ok(response);
+        }catch(LlmBusyException e){
+            // 大模型调用繁忙属于暂时性错误，返回 503 提示客户端稍后重试，而不是回退规则引擎
+            if (session != null) {
+                session.cancel();
+            }
+            requestTracker.finish(trace);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(BUSY_RETRY_AFTER_SECONDS))
+                    .body(GenerateResponse.error(e.getMessage()));
         }catch(Exception e){
+            if (session != null) {
+                session.cancel();
+            }
+            requestTracker.finish(trace);
             return ResponseEntity.ok(GenerateResponse.error("生成测试用例失败: " + e.getMessage()));
         }
     }
     
+    /**
+     * 流式生成（SSE）：stage 事件推送阶段进度，testcase 事件逐条推送用例，done 事件结束（evaluate 为 true 时带评测结果）
+     */
+    @PostMapping(value = "/generate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter generateTestCasesStream(@Valid @RequestBody GenerateRequest request) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        // 客户端断开或超时时中断生成任务，正在进行的大模型调用随之取消
+        AtomicReference<Future<?>> task = new AtomicReference<>();
+        emitter.onTimeout(() -> cancelStream(task.get()));
+        emitter.onError(e -> cancelStream(task.get()));
+        // 外层任务在任务线程池执行，流水线内部的并发子任务使用流水线线程池，避免同池嵌套等待
+        try {
+            task.set(jobExecutor.submit(() -> runStream(emitter, request)));
+        } catch (RejectedExecutionException e) {
+            sendEvent(emitter, "error", Map.of("message", "生成任务队列已满，请稍后重试"));
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    private void runStream(SseEmitter emitter, GenerateRequest request) {
+        RequestTrace trace = requestTracker.begin("stream");
+        EvaluationService.Session session = request.isEvaluate() ? evaluationService.openSession(request.getPrd()) : null;
+        try {
+            List<TestCase> testCases = testCaseService.generateTestCasesStream(request.getPrd(), request.isBypassCache(),
+                    new TestCaseStreamListener() {
+                        @Override
+                        public void onStage(String stage, String message) {
+                            streamEvent(emitter, "stage", Map.of("stage", stage, "message", message));
+                        }
+
+                        @Override
+                        public void onTestCase(TestCase testCase) {
+                            streamEvent(emitter, "testcase", testCase);
+                            if (session != null) {
+                                session.add(testCase);
+                            }
+                        }
+                    });
+            Map<String, Object> done = new LinkedHashMap<>();
+            done.put("count", testCases.size());
+            if (session != null) {
+                sendEvent(emitter, "stage", Map.of("stage", "evaluation", "message", "测试用例评测"));
+                done.put("evaluation", session.finish(testCases));
+            }
+            requestTracker.finish(trace);
+            if (request.isDiagnostics()) {
+                done.put("diagnostics", trace.snapshot());
+            }
+            if (request.isCoverage()) {
+                done.put("coverage", coverageService.report(request.getPrd(), testCases));
+            }
+            sendEvent(emitter, "done", done);
+            emitter.complete();
+        } catch (CancellationException e) {
+            if (session != null) {
+                session.cancel();
+            }
+            requestTracker.finish(trace);
+            log.info("流式生成已取消: {}", e.getMessage());
+            emitter.completeWithError(e);
+        } catch (LlmBusyException e) {
+            if (session != null) {
+                session.cancel();
+            }
+            requestTracker.finish(trace);
+            log.warn("流式生成失败，大模型调用繁忙: {}", e.getMessage());
+            try {
+                sendEvent(emitter, "error", Map.of("message", e.getMessage(), "retryable", true));
+                emitter.complete();
+            } catch (IllegalStateException disconnected) {
+                emitter.completeWithError(e);
+            }
+        } catch (Exception e) {
+            if (session != null) {
+                session.cancel();
+            }
+            requestTracker.finish(trace);
+            log.warn("流式生成中断: {}", e.getMessage());
+            emitter.completeWithError(e);
+        }
+    }
+
+    /**
+     * 流水线回调中推送事件：客户端已断开时抛出 CancellationException，流水线不再兜底而是直接停止
+     */
+    private void streamEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            sendEvent(emitter, name, data);
+        } catch (IllegalStateException e) {
+            throw new CancellationException("客户端连接已断开");
+        }
+    }
+
+    private void cancelStream(Future<?> task) {
+        if (task != null) {
+            task.cancel(true);
+        }
+    }
+
+    /**
+     * 批量生成（SSE）：accepted 事件返回条目数，stage 事件推送各条目阶段进度（含 index），
+     * result 事件按完成顺序逐条推送结果，done 事件汇总；客户端断开时取消未完成的条目
+     */
+    @PostMapping(value = "/batch/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter generateBatchStream(@Valid @RequestBody BatchGenerateRequest request) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        AtomicReference<BatchGenerationService.Batch> batch = new AtomicReference<>();
+        emitter.onTimeout(() -> cancelBatch(batch.get()));
+        emitter.onError(e -> cancelBatch(batch.get()));
+        try {
+            batch.set(batchGenerationService.submit(request, new BatchGenerationListener() {
+                @Override
+                public void onAccepted(int count) {
+                    sendEvent(emitter, "accepted", Map.of("count", count));
+                }
+
+                @Override
+                public void onStage(int index, String stage, String message) {
+                    sendEvent(emitter, "stage", Map.of("index", index, "stage", stage, "message", message));
+                }
+
+                @Override
+                public void onResult(BatchItemResult result) {
+                    sendEvent(emitter, "result", result);
+                }
+
+                @Override
+                public void onComplete(Map<String, Object> summary) {
+                    sendEvent(emitter, "done", summary);
+                    emitter.complete();
+                }
+            }));
+        } catch (IllegalArgumentException e) {
+            sendEvent(emitter, "error", Map.of("message", e.getMessage()));
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    private void cancelBatch(BatchGenerationService.Batch batch) {
+        if (batch != null) {
+            batch.cancel();
+        }
+    }
+
+    /**
+     * 生成结果缓存命中率等统计信息
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> cacheStats() {
+        return ResponseEntity.ok(generationCache.stats());
+    }
+
+    private void sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+        } catch (IOException e) {
+            throw new IllegalStateException("客户端连接已断开", e);
+        }
+    }
+
     @PostMapping("/evaluate")
     public ResponseEntity<EvaluationResponse> evaluateTestCases(@Valid @RequestBody EvaluationRequest request) {
+        RequestTrace trace = requestTracker.begin("evaluate");
         try {
             var score = evaluationService.evaluateTestCases(request.getPrd(), request.getTestCases());
-            return ResponseEntity.ok(EvaluationResponse.success(score));
+            requestTracker.finish(trace);
+            EvaluationResponse response = EvaluationResponse.success(score);
+            if (Boolean.TRUE.equals(score.getPartial())) {
+                response.setMessage(String.format("评测完成，但仅 %d/%d 个分片评测成功，得分基于部分用例",
+                        score.getScoredShards(), score.getTotalShards()));
+            }
+            if (request.isDiagnostics()) {
+                response.setDiagnostics(trace.snapshot());
+            }
+            return ResponseEntity.ok(response);
         } catch (Exception e) {
+            requestTracker.finish(trace);
             return ResponseEntity.ok(EvaluationResponse.error("评测失败: " + e.getMessage()));
         }
     }
+
+    /**
+     * 评测结果缓存命中率等统计信息
+     */
+    @GetMapping("/evaluate/cache/stats")
+    public ResponseEntity<Map<String, Object>> evaluationCacheStats() {
+        return ResponseEntity.ok(evaluationCache.stats());
+    }
+
+    /**
+     * 本地覆盖率报告：请求体同 /evaluate，按用例的追溯链接对照该 PRD 最近一次生成时解析出的功能点，不调用大模型
+     */
+    @PostMapping("/coverage")
+    public ResponseEntity<CoverageResponse> coverage(@Valid @RequestBody EvaluationRequest request) {
+        var report = coverageService.report(request.getPrd(), request.getTestCases());
+        if (report == null) {
+            return ResponseEntity.ok(CoverageResponse.error("未找到该 PRD 的功能点解析结果，请先通过大模型流水线生成测试用例"));
+        }
+        return ResponseEntity.ok(CoverageResponse.success(report));
+    }
 }
 
@@ -0,0 +1,39 @@
+package com.example.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量生成请求：PRD 全文与飞书文档链接可混合提交
+ */
+@Data
+public class BatchGenerateRequest {
+    /**
+     * PRD 全文列表，结果序号依次为 0..prds.size()-1
+     */
+    private List<String> prds;
+
+    /**
+     * 飞书文档链接列表，先获取文档内容再生成，结果序号接在 prds 之后
+     */
+    private List<String> urls;
+
+    /**
+     * 跳过生成结果缓存，强制重新调用大模型
+     */
+    private boolean bypassCache;
+
+    /**
+     * 每条结果附带该条生成的耗时与 Token 明细
+     */
+    private boolean diagnostics;
+
+    @JsonIgnore
+    @AssertTrue(message = "prds 与 urls 至少提供一项")
+    public boolean isNotEmpty() {
+        return (prds != null && !prds.isEmpty()) || (urls != null && !urls.isEmpty());
+    }
+}
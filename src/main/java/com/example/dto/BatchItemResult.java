@@ -0,0 +1,46 @@
+package com.example.dto;
+
+import com.example.model.RequestDiagnostics;
+import com.example.model.TestCase;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量生成中单个 PRD 的结果（SSE result 事件）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+    /**
+     * 在请求中的序号：prds 在前，urls 在后
+     */
+    private int index;
+
+    /**
+     * 飞书文档来源时的链接
+     */
+    private String url;
+
+    private boolean success;
+    private String message;
+    private List<TestCase> testCases;
+
+    /**
+     * 请求诊断明细，仅在请求 diagnostics 为 true 时返回
+     */
+    private RequestDiagnostics diagnostics;
+
+    public static BatchItemResult success(int index, String url, List<TestCase> testCases, RequestDiagnostics diagnostics) {
+        return new BatchItemResult(index, url, true, "生成成功", testCases, diagnostics);
+    }
+
+    public static BatchItemResult error(int index, String url, String message, RequestDiagnostics diagnostics) {
+        return new BatchItemResult(index, url, false, message, null, diagnostics);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.dto;
+
+import com.example.model.CoverageReport;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 覆盖率报告响应DTO
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CoverageResponse {
+    private boolean success;
+    private String message;
+    private CoverageReport report;
+
+    public static CoverageResponse success(CoverageReport report) {
+        return new CoverageResponse(true, "计算成功", report);
+    }
+
+    public static CoverageResponse error(String message) {
+        return new CoverageResponse(false, message, null);
+    }
+}
@@ -27,5 +27,10 @@ public class EvaluationRequest {
      */
     @NotEmpty(message = "测试用例列表不能为空")
     private List<TestCase> testCases;
+
+    /**
+     * 在响应中返回本次请求的耗时与 Token 明细
+     */
+    private boolean diagnostics;
 }
 
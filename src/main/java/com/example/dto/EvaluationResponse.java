@@ -1,6 +1,8 @@
 package com.example.dto;
 
 import com.example.model.EvaluationScore;
+import com.example.model.RequestDiagnostics;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -19,6 +21,12 @@ public class EvaluationResponse {
      * 整体评测结果（对整个测试用例集合的评分）
      */
     private EvaluationScore score;
+
+    /**
+     * 请求诊断明细，仅在请求 diagnostics 为 true 时返回
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private RequestDiagnostics diagnostics;
     
     public static EvaluationResponse success(EvaluationScore score) {
         EvaluationResponse response = new EvaluationResponse();
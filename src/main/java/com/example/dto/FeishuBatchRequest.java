@@ -0,0 +1,22 @@
+package com.example.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量获取飞书文档请求：普通文档链接与知识库链接可混合提交
+ */
+@Data
+public class FeishuBatchRequest {
+    @NotEmpty(message = "飞书文档链接不能为空")
+    private List<String> urls;
+
+    /**
+     * 知识库链接向下展开的层级：0 只获取链接本身，1 包含直接子页面，以此类推
+     */
+    @Min(value = 0, message = "depth 不能为负数")
+    private int depth;
+}
@@ -0,0 +1,34 @@
+package com.example.dto;
+
+import com.example.model.FeishuDocument;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量获取飞书文档响应：content 为获取成功的文档按顺序拼接后的内容，可直接作为 PRD 生成测试用例
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeishuBatchResponse {
+    private boolean success;
+    private String message;
+    private String content;
+    private List<FeishuDocument> documents;
+
+    /**
+     * 展开的文档数超过单次上限，超出部分未获取
+     */
+    private boolean truncated;
+
+    public static FeishuBatchResponse success(String content, List<FeishuDocument> documents, boolean truncated) {
+        return new FeishuBatchResponse(true, "获取成功", content, documents, truncated);
+    }
+
+    public static FeishuBatchResponse error(String message) {
+        return new FeishuBatchResponse(false, message, null, null, false);
+    }
+}
@@ -7,5 +7,24 @@ import lombok.Data;
 public class GenerateRequest {
     @NotBlank(message = "PRD内容不能为空")
     private String prd;
-}
 
+    /**
+     * 跳过生成结果缓存，强制重新调用大模型
+     */
+    private boolean bypassCache;
+
+    /**
+     * 在响应中返回本次请求的耗时与 Token 明细
+     */
+    private boolean diagnostics;
+
+    /**
+     * 在响应中返回本地覆盖率报告（功能点 → 用例）
+     */
+    private boolean coverage;
+
+    /**
+     * 生成后在服务端直接评测（生成过程中已完成的分片提前评测），响应中返回 evaluation
+     */
+    private boolean evaluate;
+}
@@ -1,6 +1,10 @@
 package com.example.dto;
 
+import com.example.model.CoverageReport;
+import com.example.model.EvaluationScore;
+import com.example.model.RequestDiagnostics;
 import com.example.model.TestCase;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -15,12 +19,30 @@ public class GenerateResponse {
     private String message;
     private List<TestCase> testCases;
 
+    /**
+     * 请求诊断明细，仅在请求 diagnostics 为 true 时返回
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private RequestDiagnostics diagnostics;
+
+    /**
+     * 本地覆盖率报告，仅在请求 coverage 为 true 且本次由大模型流水线生成（或命中保存了功能点的生成结果缓存）时返回
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private CoverageReport coverage;
+
+    /**
+     * 评测结果，仅在请求 evaluate 为 true 时返回
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private EvaluationScore evaluation;
+
     public static GenerateResponse success(List<TestCase> testCases) {
-        return new GenerateResponse(true, "生成成功", testCases);
+        return new GenerateResponse(true, "生成成功", testCases, null, null, null);
     }
 
     public static GenerateResponse error(String message) {
-        return new GenerateResponse(false, message, null);
+        return new GenerateResponse(false, message, null, null, null, null);
     }
 }
 
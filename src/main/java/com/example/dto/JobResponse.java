@@ -0,0 +1,26 @@
+package com.example.dto;
+
+import com.example.model.GenerationJob;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 异步生成任务响应DTO
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobResponse {
+    private boolean success;
+    private String message;
+    private GenerationJob job;
+
+    public static JobResponse success(String message, GenerationJob job) {
+        return new JobResponse(true, message, job);
+    }
+
+    public static JobResponse error(String message) {
+        return new JobResponse(false, message, null);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.model;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 本地覆盖率报告：按用例的追溯链接（functionPointId）对照阶段1功能点计算，不调用大模型
+ */
+@Data
+public class CoverageReport {
+    /**
+     * 功能点总数 / 至少有一条用例的功能点数
+     */
+    private int functionPoints;
+    private int coveredFunctionPoints;
+
+    /**
+     * 覆盖率（0-100）：已覆盖功能点占比
+     */
+    private int coverage;
+
+    /**
+     * 用例涉及的不同场景数
+     */
+    private int scenarios;
+
+    /**
+     * 缺少追溯链接或指向未知功能点的用例数
+     */
+    private int untracedTestCases;
+
+    /**
+     * 未覆盖的功能点（id、name）
+     */
+    private List<Map<String, Object>> uncovered;
+
+    /**
+     * 功能点 id → 用例在列表中的下标（倒排索引，按功能点顺序）
+     */
+    private Map<String, List<Integer>> testCasesByFunctionPoint;
+}
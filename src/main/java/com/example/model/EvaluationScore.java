@@ -1,6 +1,7 @@
 package com.example.model;
 
 import com.fasterxml.jackson.annotation.JsonGetter;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -44,6 +45,30 @@ public class EvaluationScore {
      */
     private Integer nonRedundancy;
     
+    /**
+     * 分片评测时评测成功的分片数与总分片数，整体一次评测时为空
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer scoredShards;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer totalShards;
+    
+    public EvaluationScore(Integer coverage, Integer quality, Integer nonRedundancy) {
+        this(coverage, quality, nonRedundancy, null, null);
+    }
+    
+    /**
+     * 是否只有部分分片评测成功（得分仅基于这些分片），整体一次评测时为空
+     */
+    @JsonGetter("partial")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Boolean getPartial() {
+        if (scoredShards == null || totalShards == null) {
+            return null;
+        }
+        return scoredShards < totalShards;
+    }
+    
     /**
      * 计算总分（6个维度的平均值）
      */
@@ -0,0 +1,39 @@
+package com.example.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+/**
+ * 批量获取中的单篇飞书文档：来源链接（知识库子节点没有）、文档 id、标题与获取结果
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FeishuDocument {
+    private String url;
+    private String documentId;
+
+    /**
+     * 知识库节点标题，普通文档链接没有
+     */
+    private String title;
+
+    /**
+     * 在知识库目录中相对请求链接的层级，请求中的链接为 0
+     */
+    private int depth;
+
+    private boolean success;
+    private String message;
+
+    /**
+     * 文档内容长度（字符数）
+     */
+    private Integer length;
+
+    /**
+     * 文档内容，只在拼接后的 content 中返回
+     */
+    @JsonIgnore
+    private String content;
+}
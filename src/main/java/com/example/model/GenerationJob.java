@@ -0,0 +1,43 @@
+package com.example.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 异步测试用例生成任务
+ * 字段由任务线程写入、查询线程读取，均声明为 volatile
+ */
+@Data
+@NoArgsConstructor
+public class GenerationJob {
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED
+    }
+
+    private volatile String id;
+    private volatile Status status;
+
+    /**
+     * 当前阶段（step1 / step2 / incremental / cache / fallback）
+     */
+    private volatile String stage;
+    private volatile String message;
+    private volatile long createdAt;
+    private volatile Long startedAt;
+    private volatile Long finishedAt;
+    private volatile List<TestCase> testCases;
+    private volatile RequestDiagnostics diagnostics;
+
+    public GenerationJob(String id) {
+        this.id = id;
+        this.status = Status.QUEUED;
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    public boolean isFinished() {
+        return status == Status.SUCCEEDED || status == Status.FAILED || status == Status.CANCELLED;
+    }
+}
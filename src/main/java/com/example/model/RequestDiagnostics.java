@@ -0,0 +1,47 @@
+package com.example.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 单次请求的耗时与资源明细
+ * 阶段耗时为该阶段各次执行的累计墙钟时间（并行分组/章节时可能大于请求总耗时）
+ */
+@Data
+@NoArgsConstructor
+public class RequestDiagnostics {
+
+    private String requestId;
+    /**
+     * 请求类型：generate / stream / job / evaluate
+     */
+    private String type;
+    private long startedAt;
+    private long totalMs;
+
+    private boolean cacheHit;
+    private boolean fallback;
+
+    private int llmCalls;
+    private int failedCalls;
+    private int retries;
+    /**
+     * 大模型调用在限流器与上游舱壁中的累计排队时间
+     */
+    private long queueWaitMs;
+    private long promptTokens;
+    private long completionTokens;
+
+    private Map<String, StageDiagnostics> stages;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StageDiagnostics {
+        private long wallMs;
+        private String model;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -14,5 +15,16 @@ public class TestCase {
     private String precondition;
     private Object steps; // 可以是String或List<String>
     private String expectedResult;
-}
 
+    /**
+     * 追溯链接：用例所属的阶段1功能点 id（如 F1）与阶段2场景 id（如 F1-S2），规则引擎生成的用例没有
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String functionPointId;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String scenarioId;
+
+    public TestCase(String title, String precondition, Object steps, String expectedResult) {
+        this(title, precondition, steps, expectedResult, null, null);
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 火山方舟客户端限流器
+ * 1. 请求数、Token 数两个令牌桶，按每分钟配额匀速补充，配额不足时短暂排队而非直接失败
+ * 2. AIMD 并发控制：调用成功时并发上限缓慢增加，遇到 429/5xx 时按比例减半
+ * 3. 并发许可由进行中的调用占用，释放时间取决于调用耗时，排队上限单独配置，不受令牌桶的短超时限制
+ */
+@Service
+@Slf4j
+public class ArkRateLimiter {
+
+    @Value("${volc.ark.limit.enabled:true}")
+    private boolean enabled;
+    @Value("${volc.ark.limit.requests-per-minute:300}")
+    private long requestsPerMinute;
+    @Value("${volc.ark.limit.tokens-per-minute:500000}")
+    private long tokensPerMinute;
+    // 每次调用预估的输出 Token 数，调用完成后按实际用量多退少补
+    @Value("${volc.ark.limit.output-token-estimate:4000}")
+    private long outputTokenEstimate;
+    // 令牌桶配额不足时的最长排队时间
+    @Value("${volc.ark.limit.max-wait-ms:30000}")
+    private long maxWaitMs;
+    // 并发上限已满时的最长排队时间，默认与客户端调用超时一致（单次调用最长占用许可的时间）
+    @Value("${volc.ark.limit.concurrency-wait-ms:600000}")
+    private long concurrencyWaitMs;
+
+    @Value("${volc.ark.limit.aimd.initial-limit:8}")
+    private int initialLimit;
+    @Value("${volc.ark.limit.aimd.min-limit:1}")
+    private int minLimit;
+    @Value("${volc.ark.limit.aimd.max-limit:32}")
+    private int maxLimit;
+    @Value("${volc.ark.limit.aimd.backoff-ratio:0.5}")
+    private double backoffRatio;
+    // 两次减半之间的最小间隔，避免同一波并发失败把上限连续压到最低
+    @Value("${volc.ark.limit.aimd.backoff-interval-ms:1000}")
+    private long backoffIntervalMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    // 以下状态均在 lock 内访问
+    private double availableRequests;
+    private double availableTokens;
+    private long lastRefillNanos;
+    private double concurrencyLimit;
+    private int inFlight;
+    private long lastBackoffNanos;
+
+    private long acquired;
+    private long throttled;
+    private long timeouts;
+    private long overloads;
+
+    @PostConstruct
+    public void init() {
+        this.availableRequests = requestsPerMinute;
+        this.availableTokens = tokensPerMinute;
+        this.lastRefillNanos = System.nanoTime();
+        this.concurrencyLimit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+        log.info("方舟限流器初始化完成，RPM: {}，TPM: {}，初始并发上限: {}",
+                requestsPerMinute, tokensPerMinute, (int) concurrencyLimit);
+    }
+
+    /**
+     * 申请一次调用许可：并发已满时最多排队 concurrency-wait-ms，令牌桶配额不足时最多排队 max-wait-ms（从开始等待配额时计时）
+     * 超时抛出 LlmBusyException；等待中被中断抛出 CancellationException
+     */
+    public Permit acquire(long inputTokens) {
+        if (!enabled) {
+            return new Permit(0, false);
+        }
+        long cost = Math.min(inputTokens + outputTokenEstimate, tokensPerMinute);
+        long concurrencyDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(concurrencyWaitMs);
+        long bucketDeadline = Long.MAX_VALUE;
+        boolean waited = false;
+        try {
+            lock.lockInterruptibly();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("方舟调用已取消");
+        }
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                refill(now);
+                boolean concurrencyAvailable = inFlight < (int) concurrencyLimit;
+                if (concurrencyAvailable && availableRequests >= 1 && availableTokens >= cost) {
+                    availableRequests -= 1;
+                    availableTokens -= cost;
+                    inFlight++;
+                    acquired++;
+                    if (waited) {
+                        throttled++;
+                    }
+                    return new Permit(cost, true);
+                }
+                if (!concurrencyAvailable) {
+                    long remaining = concurrencyDeadline - now;
+                    if (remaining <= 0) {
+                        timeouts++;
+                        throw new LlmBusyException("方舟调用并发排队超时（" + concurrencyWaitMs + "ms），请稍后重试");
+                    }
+                    waited = true;
+                    changed.awaitNanos(remaining);
+                    continue;
+                }
+                if (bucketDeadline == Long.MAX_VALUE) {
+                    bucketDeadline = now + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+                }
+                long remaining = bucketDeadline - now;
+                if (remaining <= 0) {
+                    timeouts++;
+                    throw new LlmBusyException("方舟调用配额排队超时（" + maxWaitMs + "ms），请稍后重试");
+                }
+                waited = true;
+                changed.awaitNanos(Math.min(remaining, nanosUntilAvailable(cost)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("方舟调用已取消");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        lock.lock();
+        try {
+            refill(System.nanoTime());
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("enabled", enabled);
+            stats.put("concurrencyLimit", (int) concurrencyLimit);
+            stats.put("inFlight", inFlight);
+            stats.put("availableRequests", (long) availableRequests);
+            stats.put("availableTokens", (long) availableTokens);
+            stats.put("acquired", acquired);
+            stats.put("throttled", throttled);
+            stats.put("timeouts", timeouts);
+            stats.put("overloads", overloads);
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill(long now) {
+        double elapsedMinutes = (now - lastRefillNanos) / (double) TimeUnit.MINUTES.toNanos(1);
+        lastRefillNanos = now;
+        availableRequests = Math.min(requestsPerMinute, availableRequests + elapsedMinutes * requestsPerMinute);
+        availableTokens = Math.min(tokensPerMinute, availableTokens + elapsedMinutes * tokensPerMinute);
+    }
+
+    /**
+     * 距离令牌桶满足本次调用的等待时间
+     */
+    private long nanosUntilAvailable(long cost) {
+        long minute = TimeUnit.MINUTES.toNanos(1);
+        double requestWait = Math.max(0, 1 - availableRequests) / requestsPerMinute * minute;
+        double tokenWait = Math.max(0, cost - availableTokens) / tokensPerMinute * minute;
+        return Math.max(TimeUnit.MILLISECONDS.toNanos(1), (long) Math.max(requestWait, tokenWait));
+    }
+
+    private void release(long tokenDelta, int outcome) {
+        lock.lock();
+        try {
+            inFlight--;
+            // 按实际用量修正 Token 桶，允许短暂透支
+            availableTokens = Math.max(-tokensPerMinute, Math.min(tokensPerMinute, availableTokens - tokenDelta));
+            if (outcome > 0) {
+                concurrencyLimit = Math.min(maxLimit, concurrencyLimit + 1.0 / concurrencyLimit);
+            } else if (outcome < 0) {
+                overloads++;
+                long now = System.nanoTime();
+                if (now - lastBackoffNanos >= TimeUnit.MILLISECONDS.toNanos(backoffIntervalMs)) {
+                    lastBackoffNanos = now;
+                    concurrencyLimit = Math.max(minLimit, concurrencyLimit * backoffRatio);
+                    log.warn("方舟返回限流/过载，并发上限降至 {}", (int) concurrencyLimit);
+                }
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 调用许可，调用结束后必须通过 success/overloaded/release 之一归还（重复归还无效）
+     */
+    public class Permit {
+        private final long reservedTokens;
+        private boolean active;
+
+        private Permit(long reservedTokens, boolean active) {
+            this.reservedTokens = reservedTokens;
+            this.active = active;
+        }
+
+        /**
+         * 调用成功，actualTokens 为实际消耗的 Token 数（未知时传负数）
+         */
+        public void success(long actualTokens) {
+            finish(actualTokens < 0 ? 0 : actualTokens - reservedTokens, 1);
+        }
+
+        /**
+         * 上游返回 429/5xx，触发并发上限回退
+         */
+        public void overloaded() {
+            finish(0, -1);
+        }
+
+        /**
+         * 其他失败，仅归还并发
+         */
+        public void release() {
+            finish(0, 0);
+        }
+
+        private synchronized void finish(long tokenDelta, int outcome) {
+            if (!active) {
+                return;
+            }
+            active = false;
+            ArkRateLimiter.this.release(tokenDelta, outcome);
+        }
+    }
+}
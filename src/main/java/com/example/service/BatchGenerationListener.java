@@ -0,0 +1,20 @@
+package com.example.service;
+
+import com.example.dto.BatchItemResult;
+
+import java.util.Map;
+
+/**
+ * 批量生成回调：受理条目数、各条目的阶段进度、单条结果（按完成顺序）与整批结束汇总
+ * 回调在批量任务线程上并发触发，实现需线程安全
+ */
+public interface BatchGenerationListener {
+
+    void onAccepted(int count);
+
+    void onStage(int index, String stage, String message);
+
+    void onResult(BatchItemResult result);
+
+    void onComplete(Map<String, Object> summary);
+}
@@ -0,0 +1,231 @@
+package com.example.service;
+
+import com.example.dto.BatchGenerateRequest;
+import com.example.dto.BatchItemResult;
+import com.example.model.RequestDiagnostics;
+import com.example.model.TestCase;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量测试用例生成服务
+ * 1. 所有批量请求共享同一个有界线程池，同时在途的 PRD 数量由线程数决定，各 PRD 的阶段调用在上游舱壁与限流下交错执行
+ * 2. 同一批内相同的 PRD / 链接只生成一次，结果分发给所有对应序号
+ * 3. 按预估耗时从长到短调度（链接未知长度，优先），缩短整批完成时间
+ * 4. 单条完成即回调，不等待整批
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BatchGenerationService {
+
+    private final TestCaseService testCaseService;
+    private final FeishuService feishuService;
+    private final ExecutorService batchExecutor;
+    private final RequestTracker requestTracker;
+
+    // 单批最大条目数
+    @Value("${pipeline.batch.max-items:100}")
+    private int maxItems;
+
+    /**
+     * 提交批量生成，立即返回；条目数超限时抛出 IllegalArgumentException
+     */
+    public Batch submit(BatchGenerateRequest request, BatchGenerationListener listener) {
+        List<Item> items = toItems(request);
+        if (items.size() > maxItems) {
+            throw new IllegalArgumentException("单批最多 " + maxItems + " 条，当前 " + items.size() + " 条");
+        }
+
+        // 相同内容合并为一个生成任务
+        Map<String, List<Item>> groups = new LinkedHashMap<>();
+        for (Item item : items) {
+            String key = item.url != null ? "url:" + item.url.trim() : "prd:" + item.prd;
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(item);
+        }
+        List<List<Item>> ordered = new ArrayList<>(groups.values());
+        ordered.sort(Comparator.comparingLong((List<Item> group) -> estimatedCost(group.get(0))).reversed());
+
+        Batch batch = new Batch(items.size(), listener);
+        listener.onAccepted(items.size());
+        log.info("提交批量生成，条目数: {}，去重后任务数: {}", items.size(), ordered.size());
+        for (List<Item> group : ordered) {
+            try {
+                batch.track(batchExecutor.submit(() -> run(batch, group, request)));
+            } catch (RejectedExecutionException e) {
+                for (Item item : group) {
+                    batch.deliver(BatchItemResult.error(item.index, item.url, "批量任务队列已满，请稍后重试", null));
+                }
+            }
+        }
+        return batch;
+    }
+
+    private void run(Batch batch, List<Item> group, BatchGenerateRequest request) {
+        if (batch.cancelled.get()) {
+            return;
+        }
+        Item first = group.get(0);
+        RequestTrace trace = requestTracker.begin("batch");
+        List<TestCase> testCases = null;
+        String error = null;
+        try {
+            String prd = first.url != null ? feishuService.fetchDocumentContent(first.url) : first.prd;
+            testCases = testCaseService.generateTestCases(prd, request.isBypassCache(), new TestCaseStreamListener() {
+                @Override
+                public void onStage(String stage, String message) {
+                    for (Item item : group) {
+                        batch.stage(item.index, stage, message);
+                    }
+                }
+
+                @Override
+                public void onTestCase(TestCase testCase) {
+                }
+            });
+        } catch (CancellationException e) {
+            error = "任务已取消";
+        } catch (Exception e) {
+            log.error("批量生成第 {} 条失败", first.index, e);
+            error = "生成测试用例失败: " + e.getMessage();
+        } finally {
+            requestTracker.finish(trace);
+        }
+
+        RequestDiagnostics diagnostics = request.isDiagnostics() ? trace.snapshot() : null;
+        for (Item item : group) {
+            batch.deliver(error == null
+                    ? BatchItemResult.success(item.index, item.url, testCases, diagnostics)
+                    : BatchItemResult.error(item.index, item.url, error, diagnostics));
+        }
+    }
+
+    private List<Item> toItems(BatchGenerateRequest request) {
+        List<Item> items = new ArrayList<>();
+        if (request.getPrds() != null) {
+            for (String prd : request.getPrds()) {
+                items.add(new Item(items.size(), prd, null));
+            }
+        }
+        if (request.getUrls() != null) {
+            for (String url : request.getUrls()) {
+                items.add(new Item(items.size(), null, url));
+            }
+        }
+        return items;
+    }
+
+    /**
+     * 预估生成耗时：PRD 越长阶段1/3 越慢；链接需先获取文档、长度未知，排在最前
+     */
+    private long estimatedCost(Item item) {
+        return item.url != null ? Long.MAX_VALUE : item.prd == null ? 0 : item.prd.length();
+    }
+
+    private static final class Item {
+        final int index;
+        final String prd;
+        final String url;
+
+        Item(int index, String prd, String url) {
+            this.index = index;
+            this.prd = prd;
+            this.url = url;
+        }
+    }
+
+    /**
+     * 一次批量生成的句柄：结果计数与取消
+     */
+    public static final class Batch {
+        private final int total;
+        private final BatchGenerationListener listener;
+        private final List<Future<?>> futures = new ArrayList<>();
+        private final AtomicInteger remaining;
+        private final AtomicInteger succeeded = new AtomicInteger();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final long startNanos = System.nanoTime();
+
+        Batch(int total, BatchGenerationListener listener) {
+            this.total = total;
+            this.listener = listener;
+            this.remaining = new AtomicInteger(total);
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        /**
+         * 取消未完成的条目（客户端断开或超时），正在进行的大模型调用被中断
+         */
+        public void cancel() {
+            if (!cancelled.compareAndSet(false, true)) {
+                return;
+            }
+            synchronized (futures) {
+                futures.forEach(future -> future.cancel(true));
+            }
+        }
+
+        private void stage(int index, String stage, String message) {
+            if (cancelled.get()) {
+                return;
+            }
+            try {
+                listener.onStage(index, stage, message);
+            } catch (RuntimeException e) {
+                cancel();
+            }
+        }
+
+        private void track(Future<?> future) {
+            synchronized (futures) {
+                futures.add(future);
+            }
+            if (cancelled.get()) {
+                future.cancel(true);
+            }
+        }
+
+        /**
+         * 推送单条结果；最后一条推送完成后推送整批汇总
+         */
+        private void deliver(BatchItemResult result) {
+            if (result.isSuccess()) {
+                succeeded.incrementAndGet();
+            }
+            try {
+                if (!cancelled.get()) {
+                    listener.onResult(result);
+                }
+                if (remaining.decrementAndGet() == 0 && !cancelled.get()) {
+                    Map<String, Object> summary = new LinkedHashMap<>();
+                    summary.put("total", total);
+                    summary.put("succeeded", succeeded.get());
+                    summary.put("failed", total - succeeded.get());
+                    summary.put("elapsedMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+                    listener.onComplete(summary);
+                }
+            } catch (RuntimeException e) {
+                log.warn("批量生成结果推送失败，取消剩余条目: {}", e.getMessage());
+                cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.service;
+
+import com.example.model.CoverageReport;
+import com.example.model.TestCase;
+import com.example.util.HashUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 功能点 → 测试用例的追溯与本地覆盖率
+ * 1. 阶段3 输出的 scenarioId（如 F1-S2）推出 functionPointId（F1），作为用例的追溯链接
+ * 2. 按 PRD 内容哈希保存最近一次阶段1 解析出的功能点（内存 LRU），评测与覆盖率报告按 PRD 查找
+ * 3. 覆盖率报告在功能点与用例之间建倒排索引，毫秒级完成，不调用大模型
+ */
+@Service
+public class CoverageService {
+
+    // 场景 id 末尾的 "-S<序号>"，其余部分即功能点 id（增量生成时带章节前缀，如 P2-F3-S1）
+    private static final Pattern SCENARIO_ID = Pattern.compile("^(.+?)-S\\d+$", Pattern.CASE_INSENSITIVE);
+
+    private final Map<String, List<Map<String, Object>>> catalog;
+
+    public CoverageService(@Value("${pipeline.coverage.max-entries:256}") int maxEntries) {
+        this.catalog = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<Map<String, Object>>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 记录 PRD 的阶段1 功能点，同一 PRD 以最近一次生成为准
+     */
+    public synchronized void record(String prd, List<Map<String, Object>> functionPoints) {
+        catalog.put(HashUtils.sha256(prd), List.copyOf(functionPoints));
+    }
+
+    public synchronized List<Map<String, Object>> functionPoints(String prd) {
+        return catalog.get(HashUtils.sha256(prd));
+    }
+
+    /**
+     * 补全追溯链接：functionPointId 缺失时由 scenarioId 推出
+     */
+    public static void link(TestCase testCase) {
+        if (testCase.getFunctionPointId() != null || testCase.getScenarioId() == null) {
+            return;
+        }
+        Matcher matcher = SCENARIO_ID.matcher(testCase.getScenarioId().trim());
+        if (matcher.matches()) {
+            testCase.setFunctionPointId(matcher.group(1));
+        }
+    }
+
+    public static void link(List<TestCase> testCases) {
+        if (testCases != null) {
+            testCases.forEach(CoverageService::link);
+        }
+    }
+
+    /**
+     * 按 PRD 查找功能点生成覆盖率报告，该 PRD 未经本服务生成（或已被淘汰）时返回 null
+     */
+    public CoverageReport report(String prd, List<TestCase> testCases) {
+        List<Map<String, Object>> functionPoints = functionPoints(prd);
+        return functionPoints == null ? null : report(functionPoints, testCases);
+    }
+
+    public static CoverageReport report(List<Map<String, Object>> functionPoints, List<TestCase> testCases) {
+        Map<String, List<Integer>> index = new LinkedHashMap<>();
+        for (Map<String, Object> functionPoint : functionPoints) {
+            index.put(String.valueOf(functionPoint.get("id")), new ArrayList<>());
+        }
+        Set<String> scenarios = new HashSet<>();
+        int untraced = 0;
+        for (int i = 0; i < testCases.size(); i++) {
+            TestCase testCase = testCases.get(i);
+            link(testCase);
+            List<Integer> cases = testCase.getFunctionPointId() == null ? null : index.get(testCase.getFunctionPointId());
+            if (cases == null) {
+                untraced++;
+                continue;
+            }
+            cases.add(i);
+            if (testCase.getScenarioId() != null) {
+                scenarios.add(testCase.getScenarioId());
+            }
+        }
+
+        List<Map<String, Object>> uncovered = new ArrayList<>();
+        Set<String> listed = new HashSet<>();
+        for (Map<String, Object> functionPoint : functionPoints) {
+            String id = String.valueOf(functionPoint.get("id"));
+            if (index.get(id).isEmpty() && listed.add(id)) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("id", functionPoint.get("id"));
+                item.put("name", functionPoint.get("name"));
+                uncovered.add(item);
+            }
+        }
+
+        CoverageReport report = new CoverageReport();
+        report.setFunctionPoints(index.size());
+        report.setCoveredFunctionPoints(index.size() - uncovered.size());
+        report.setCoverage(index.isEmpty() ? 0 : (int) Math.round(100.0 * report.getCoveredFunctionPoints() / index.size()));
+        report.setScenarios(scenarios.size());
+        report.setUntracedTestCases(untraced);
+        report.setUncovered(uncovered);
+        report.setTestCasesByFunctionPoint(index);
+        return report;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.service;
+
+import com.example.model.EvaluationScore;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 评测结果缓存（内存 LRU）
+ * 键由 EvaluationService 计算：整个用例集与单个分片各一条，均与用例顺序无关；只缓存大模型评测成功的得分
+ */
+@Service
+public class EvaluationCache {
+
+    @Value("${evaluation.cache.enabled:true}")
+    private boolean enabled;
+    @Value("${evaluation.cache.max-entries:1024}")
+    private int maxEntries;
+    @Value("${evaluation.cache.ttl-hours:72}")
+    private long ttlHours;
+
+    // 访问顺序的 LinkedHashMap 实现 LRU，所有访问均在 this 上同步
+    private LinkedHashMap<String, CacheEntry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 读取缓存（返回副本），未命中或已过期返回 null
+     */
+    public synchronized EvaluationScore get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        CacheEntry entry = entries.get(key);
+        if (entry != null && System.currentTimeMillis() - entry.createdAt > TimeUnit.HOURS.toMillis(ttlHours)) {
+            entries.remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return copy(entry.score);
+    }
+
+    public synchronized void put(String key, EvaluationScore score) {
+        if (!enabled || score == null) {
+            return;
+        }
+        entries.put(key, new CacheEntry(copy(score), System.currentTimeMillis()));
+    }
+
+    public synchronized Map<String, Object> stats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("entries", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", total == 0 ? 0.0 : (double) hitCount / total);
+        return stats;
+    }
+
+    private static EvaluationScore copy(EvaluationScore score) {
+        return new EvaluationScore(score.getCoverage(), score.getQuality(), score.getNonRedundancy(),
+                score.getScoredShards(), score.getTotalShards());
+    }
+
+    private record CacheEntry(EvaluationScore score, long createdAt) {
+    }
+}
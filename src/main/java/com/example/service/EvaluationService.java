@@ -1,28 +1,31 @@
 package com.example.service;
 
+import com.example.model.CoverageReport;
 import com.example.model.EvaluationScore;
 import com.example.model.TestCase;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.example.util.HashUtils;
+import com.example.util.LlmJsonStreamParser;
+import com.example.util.TokenEstimator;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.volcengine.ark.runtime.model.completion.chat.ChatCompletionChoice;
-import com.volcengine.ark.runtime.model.completion.chat.ChatCompletionRequest;
-import com.volcengine.ark.runtime.model.completion.chat.ChatMessage;
-import com.volcengine.ark.runtime.model.completion.chat.ChatMessageRole;
-import com.volcengine.ark.runtime.service.ArkService;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StringUtils;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Pattern;
 
 /**
  * 测试用例评测服务
@@ -32,22 +35,36 @@ import java.util.Objects;
 @RequiredArgsConstructor
 @Slf4j
 public class EvaluationService {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    
     private final ObjectMapper objectMapper;
+    private final LlmClient llmClient;
+    private final StageModelRouter stageModelRouter;
+    private final PipelineMetrics pipelineMetrics;
+    private final TestCaseDeduplicator deduplicator;
+    private final CoverageService coverageService;
+    private final EvaluationCache evaluationCache;
+    private final ExecutorService pipelineExecutor;
+    private final ExecutorService evaluationExecutor;
+    
+    // 分片评测：用例部分超出 token 预算时切分为多个分片并行评测（PRD 作为各分片共同前缀）
+    @Value("${evaluation.sharding.enabled:true}")
+    private boolean shardingEnabled;
+    @Value("${evaluation.sharding.max-tokens:24000}")
+    private int shardMaxTokens;
+    
+    // 非冗余度改用本地近似去重计算（去重后保留的用例占比），不采用模型给出的分数
+    @Value("${evaluation.redundancy.local:false}")
+    private boolean localRedundancy;
+    
+    // 覆盖性改用本地覆盖率报告（已覆盖功能点占比）；该 PRD 没有功能点记录或用例均无追溯链接时仍采用模型评分
+    @Value("${evaluation.coverage.local:false}")
+    private boolean localCoverage;
     
     @Value("classpath:prompts/evaluation-system-prompt.txt")
     private Resource systemPromptResource;
     private String systemPrompt;
     
-    // 从配置文件读取火山 SDK 必要配置
-    @Value("${volc.ark.api-key:}")
-    private String apiKey;
-    @Value("${volc.ark.model:}")
-    private String model;
-    @Value("${volc.ark.base-url:https://ark.cn-beijing.volces.com/api/v3}")
-    private String baseUrl;
-    @Value("${volc.ark.enabled:}")
-    private boolean llmEnabled;
-    
     @PostConstruct
     public void initPrompt() {
         this.systemPrompt = loadSystemPrompt();
@@ -55,99 +72,311 @@ public class EvaluationService {
     
     /**
      * 评测测试用例列表（对整个测试用例集合进行整体评估）
+     * 用例序列化后超出 token 预算时分片并行评测，再按 {@link #aggregate} 的权重合并
+     * 整个用例集与各分片的得分按 PRD + 用例集合（与顺序无关）缓存：重复评测直接返回，少量用例修改后只重新评测受影响的分片
      * @param prd PRD内容
      * @param testCases 待评测的测试用例列表
      * @return 整体评测结果
      */
     public EvaluationScore evaluateTestCases(String prd, List<TestCase> testCases) {
-        if (!llmEnabled) {
-            log.warn("未启用火山大模型配置，无法进行评测");
+        if (!llmClient.isReady()) {
+            log.warn("火山大模型未启用或配置不完整，无法进行评测");
             return createDefaultScore();
         }
         
-        if (!isArkConfigReady()) {
-            log.error("火山大模型配置不完整（apiKey 或 model 为空），无法进行评测");
-            return createDefaultScore();
-        }
-        
-        log.info("开始调用火山大模型评测测试用例，PRD长度: {}, 测试用例数量: {}", prd.length(), testCases.size());
-        
-        ArkService arkService = null;
-        
+        long start = System.nanoTime();
         try {
-            arkService = getArkService();
-            
-            // 构建评测请求消息
-            List<ChatMessage> messages = new ArrayList<>();
-
-            // 系统提示词
-            ChatMessage systemMessage = ChatMessage.builder()
-                    .role(ChatMessageRole.SYSTEM)
-                    .content(systemPrompt)
-                    .build();
-            
-            // 用户消息：包含PRD和测试用例
-            String userContent = buildUserMessage(prd, testCases);
-            ChatMessage userMessage = ChatMessage.builder()
-                    .role(ChatMessageRole.USER)
-                    .content(userContent)
-                    .build();
-            
-            messages.add(systemMessage);
-            messages.add(userMessage);
-            ChatCompletionRequest.ChatCompletionRequestThinking thinking =
-                    new ChatCompletionRequest.ChatCompletionRequestThinking("disabled");
-            // 构建请求
-            ChatCompletionRequest request = ChatCompletionRequest.builder()
-                    .model(model)
-                    .messages(messages)
-                    .temperature(0.2) // 精准度优先
-                    .maxTokens(32000)
-                    .thinking(thinking)
-                    .build();
-            
-            // 调用大模型
-            String llmResponse = "";
-            try {
-                List<ChatCompletionChoice> choices = arkService.createChatCompletion(request).getChoices();
-                if (choices != null && !choices.isEmpty()) {
-                    String content = (String) Objects.requireNonNullElse(
-                            choices.get(0).getMessage().getContent(),
-                            ""
-                    );
-                    llmResponse = content.trim();
+            String[] caseKeys = caseKeys(testCases);
+            String prdKey = HashUtils.sha256(prd, stageModelRouter.fingerprint(), systemPrompt);
+            String suiteKey = HashUtils.sha256(prdKey, setHash(caseKeys, 0, caseKeys.length),
+                    shardingEnabled ? String.valueOf(shardMaxTokens) : "unsharded");
+            EvaluationScore score = evaluationCache.get(suiteKey);
+            if (score != null) {
+                log.info("命中评测结果缓存，测试用例数量: {}", testCases.size());
+                RequestTrace trace = RequestTrace.current();
+                if (trace != null) {
+                    trace.markCacheHit();
                 }
-                log.info("火山大模型返回评测结果: {}", llmResponse);
-            } catch (Exception e) {
-                log.error("调用大模型评测失败", e);
-                return createDefaultScore();
+            } else {
+                log.info("开始调用火山大模型评测测试用例，PRD长度: {}, 测试用例数量: {}", prd.length(), testCases.size());
+                score = evaluateSuite(prd, prdKey, suiteKey, testCases, caseKeys);
             }
+            if (score != null && localRedundancy) {
+                score.setNonRedundancy(deduplicator.nonRedundancy(testCases));
+            }
+            if (score != null && localCoverage) {
+                CoverageReport report = coverageService.report(prd, testCases);
+                if (report != null && report.getUntracedTestCases() < testCases.size()) {
+                    score.setCoverage(report.getCoverage());
+                }
+            }
+            pipelineMetrics.recordStage("evaluation", start, score != null && !Boolean.TRUE.equals(score.getPartial()));
             
-            // 解析评测结果（返回单个整体评分）
-            EvaluationScore score = parseEvaluationResponse(llmResponse);
-            
-            return score;
+            return score != null ? score : createDefaultScore();
             
         } catch (Exception e) {
             log.error("评测过程发生异常", e);
+            pipelineMetrics.recordStage("evaluation", start, false);
             return createDefaultScore();
-        } finally {
-            if (arkService != null) {
-                try {
-                    arkService.shutdownExecutor();
-                } catch (Exception ex) {
-                    log.warn("关闭 ArkService 资源失败", ex);
-                }
+        }
+    }
+    
+    /**
+     * 开启一次边生成边评测的会话：生成过程中逐条 {@link Session#add} 用例，分片切分与 {@link #evaluateTestCases} 一致，
+     * 用例累计超出单次评测预算后，每切出一个分片即提交评测并写入分片缓存；{@link Session#finish} 时只剩最后一个分片与合并
+     */
+    public Session openSession(String prd) {
+        return new Session(prd, llmClient.isReady() && shardingEnabled);
+    }
+    
+    /**
+     * 调用大模型评测整个用例集，命中缓存的分片不再调用；全部分片评测成功时才缓存整体得分
+     */
+    private EvaluationScore evaluateSuite(String prd, String prdKey, String suiteKey, List<TestCase> testCases,
+                                          String[] caseKeys) throws ExecutionException {
+        List<int[]> ranges = shardingEnabled ? shard(testCases, caseKeys) : List.of(new int[]{0, testCases.size()});
+        if (ranges.size() == 1) {
+            EvaluationScore score = evaluateShard(prd, testCases, null);
+            evaluationCache.put(suiteKey, score);
+            return score;
+        }
+        
+        List<List<TestCase>> shards = new ArrayList<>(ranges.size());
+        String[] shardKeys = new String[ranges.size()];
+        EvaluationScore[] scores = new EvaluationScore[ranges.size()];
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            int[] range = ranges.get(i);
+            shards.add(testCases.subList(range[0], range[1]));
+            shardKeys[i] = HashUtils.sha256(prdKey, setHash(caseKeys, range[0], range[1]));
+            scores[i] = evaluationCache.get(shardKeys[i]);
+            if (scores[i] == null) {
+                pending.add(i);
+            }
+        }
+        log.info("测试用例超出单次评测预算 {} tokens，分为 {} 个分片，其中 {} 个需要调用大模型评测",
+                shardMaxTokens, shards.size(), pending.size());
+        
+        List<Future<EvaluationScore>> futures = new ArrayList<>(pending.size());
+        for (int i : pending) {
+            List<TestCase> shard = shards.get(i);
+            String shardKey = shardKeys[i];
+            futures.add(pipelineExecutor.submit(RequestTrace.wrap(() -> evaluateShardAndCache(prd, shard, shardKey))));
+        }
+        List<EvaluationScore> results = awaitShards(futures);
+        boolean complete = true;
+        for (int j = 0; j < pending.size(); j++) {
+            int i = pending.get(j);
+            scores[i] = results.get(j);
+            complete &= scores[i] != null;
+        }
+        
+        EvaluationScore score = aggregate(shards, Arrays.asList(scores));
+        if (complete) {
+            evaluationCache.put(suiteKey, score);
+        }
+        return score;
+    }
+    
+    /**
+     * 评测多分片用例集中的一个分片并缓存得分（失败不缓存）
+     */
+    private EvaluationScore evaluateShardAndCache(String prd, List<TestCase> shard, String shardKey) {
+        String note = String.format("（本次仅提供完整测试用例集中的一个分片，共 %d 条；"
+                + "覆盖性请按本分片用例覆盖的 PRD 需求占全部需求的比例评分）\n", shard.size());
+        EvaluationScore score = evaluateShard(prd, shard, note);
+        evaluationCache.put(shardKey, score);
+        return score;
+    }
+    
+    /**
+     * 评测单个分片（不分片时即全部用例），调用失败或输出无法解析时返回 null
+     */
+    private EvaluationScore evaluateShard(String prd, List<TestCase> testCases, String shardNote) {
+        // 用户消息：包含PRD和测试用例
+        String userContent = buildUserMessage(objectMapper, prd, testCases, shardNote);
+        
+        // 调用大模型
+        StageModelRouter.Route route = stageModelRouter.route("evaluation");
+        String llmResponse;
+        try {
+            llmResponse = llmClient.chat(route, systemPrompt, userContent);
+            log.info("火山大模型返回评测结果: {}", llmResponse);
+        } catch (Exception e) {
+            log.error("调用大模型评测失败", e);
+            return null;
+        }
+        
+        // 解析评测结果（返回单个整体评分）
+        EvaluationScore score = parseEvaluationResponse(llmResponse);
+        stageModelRouter.recordResult(route, score != null);
+        return score;
+    }
+    
+    private List<EvaluationScore> awaitShards(List<Future<EvaluationScore>> futures) throws ExecutionException {
+        List<EvaluationScore> scores = new ArrayList<>(futures.size());
+        try {
+            for (Future<EvaluationScore> future : futures) {
+                scores.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new CancellationException("评测已取消");
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        }
+        return scores;
+    }
+    
+    /**
+     * 按序列化后的 token 估算把用例切成连续的分片（[from, to) 下标区间），保持原有顺序（同一功能点的用例通常相邻，落在同一分片）
+     * 分片边界由内容决定：累计达到预算一半后，遇到内容哈希满足条件的用例即在其后切分（期望再累计约 1/4 预算），
+     * 单个分片不超过预算。边界只取决于附近用例的内容，少量用例增删改只影响所在分片，其余分片仍可命中缓存
+     */
+    private List<int[]> shard(List<TestCase> testCases, String[] caseKeys) {
+        ShardCutter cutter = new ShardCutter(shardMaxTokens);
+        List<int[]> ranges = new ArrayList<>();
+        for (int i = 0; i < testCases.size(); i++) {
+            cutter.add(tokens(testCases.get(i)), caseKeys[i], ranges);
+        }
+        if (cutter.total <= shardMaxTokens) {
+            return List.<int[]>of(new int[]{0, testCases.size()});
+        }
+        cutter.finish(ranges);
+        return ranges;
+    }
+    
+    private int tokens(TestCase testCase) {
+        try {
+            return TokenEstimator.estimate(objectMapper.writeValueAsString(testCase));
+        } catch (Exception e) {
+            return TokenEstimator.estimate(String.valueOf(testCase));
+        }
+    }
+    
+    /**
+     * 每条用例的内容哈希：标题、前置条件、步骤、预期结果各自压缩空白后参与计算，追溯 id 不参与
+     */
+    private String[] caseKeys(List<TestCase> testCases) {
+        String[] keys = new String[testCases.size()];
+        for (int i = 0; i < testCases.size(); i++) {
+            keys[i] = caseKey(testCases.get(i));
+        }
+        return keys;
+    }
+    
+    private String caseKey(TestCase testCase) {
+        String steps;
+        try {
+            steps = objectMapper.writeValueAsString(testCase.getSteps());
+        } catch (Exception e) {
+            steps = String.valueOf(testCase.getSteps());
+        }
+        return HashUtils.sha256(normalize(testCase.getTitle()), normalize(testCase.getPrecondition()),
+                normalize(steps), normalize(testCase.getExpectedResult()));
+    }
+    
+    /**
+     * 用例集合哈希：区间内用例哈希排序后整体取哈希，与用例顺序无关（重复用例按次数计入）
+     */
+    private static String setHash(String[] caseKeys, int from, int to) {
+        String[] sorted = Arrays.copyOfRange(caseKeys, from, to);
+        Arrays.sort(sorted);
+        return HashUtils.sha256(sorted);
+    }
+    
+    private static String normalize(String value) {
+        return value == null ? "" : WHITESPACE.matcher(value).replaceAll(" ").trim();
+    }
+    
+    /**
+     * 合并各分片评分（只计入评测成功的分片，n_i 为分片用例数）：
+     * 1. 质量：按用例数加权平均 Σ(n_i·q_i)/Σn_i，质量是逐条用例的属性，与分片方式无关
+     * 2. 覆盖性：各分片覆盖的需求视为相互独立，取并集 100·(1 − Π(1 − c_i/100))；
+     *    分片按原顺序切分，不同分片大多对应不同功能点，并集比平均值更接近整体覆盖
+     * 3. 非冗余度：分片内冗余由模型按用例数加权评分，跨分片的重复用例模型看不到，单独在本地识别，
+     *    按重复用例占比折减：Σ(n_i·r_i)/Σn_i × (1 − 跨分片重复数/总用例数)
+     * 得分中记录评测成功的分片数与总分片数，部分分片失败时标记为部分结果（调用方不缓存）；全部分片失败时返回 null
+     */
+    private EvaluationScore aggregate(List<List<TestCase>> shards, List<EvaluationScore> scores) {
+        double weight = 0;
+        double quality = 0;
+        double nonRedundancy = 0;
+        double uncovered = 1;
+        int scored = 0;
+        for (int i = 0; i < shards.size(); i++) {
+            EvaluationScore score = scores.get(i);
+            if (score == null) {
+                continue;
             }
+            scored++;
+            int n = shards.get(i).size();
+            weight += n;
+            quality += n * score.getQuality();
+            nonRedundancy += n * score.getNonRedundancy();
+            uncovered *= 1 - score.getCoverage() / 100.0;
+        }
+        if (weight == 0) {
+            log.error("分片评测全部失败（共 {} 个分片），返回默认评分", shards.size());
+            return null;
+        }
+        int total = shards.stream().mapToInt(List::size).sum();
+        int duplicates = countCrossShardDuplicates(shards);
+        double redundancyFactor = 1 - (double) duplicates / total;
+        if (scored < shards.size()) {
+            log.warn("分片评测部分失败：成功分片 {}/{}，成功分片用例 {}/{}，得分仅基于成功的分片",
+                    scored, shards.size(), (int) weight, total);
         }
+        log.info("分片评测合并：成功分片 {}/{}，成功分片用例 {}/{}，跨分片重复用例 {}",
+                scored, shards.size(), (int) weight, total, duplicates);
+        return new EvaluationScore(
+                (int) Math.round(100 * (1 - uncovered)),
+                (int) Math.round(quality / weight),
+                (int) Math.round(nonRedundancy / weight * redundancyFactor),
+                scored, shards.size());
+    }
+    
+    /**
+     * 跨分片重复用例数：与其他分片中更早的用例近似重复（见 {@link TestCaseDeduplicator}）的用例数，
+     * 分片内的重复模型已能看到，不重复计入
+     */
+    private int countCrossShardDuplicates(List<List<TestCase>> shards) {
+        List<TestCase> all = new ArrayList<>();
+        int[] shardOf = new int[shards.stream().mapToInt(List::size).sum()];
+        for (int i = 0; i < shards.size(); i++) {
+            for (TestCase testCase : shards.get(i)) {
+                shardOf[all.size()] = i;
+                all.add(testCase);
+            }
+        }
+        int[] duplicateOf = deduplicator.duplicateOf(all);
+        int duplicates = 0;
+        for (int i = 0; i < duplicateOf.length; i++) {
+            if (duplicateOf[i] >= 0 && shardOf[duplicateOf[i]] != shardOf[i]) {
+                duplicates++;
+            }
+        }
+        return duplicates;
+    }
+    
+    /**
+     * 构建用户消息内容（无状态，供基准测试直接调用）
+     */
+    public static String buildUserMessage(ObjectMapper objectMapper, String prd, List<TestCase> testCases) {
+        return buildUserMessage(objectMapper, prd, testCases, null);
     }
     
     /**
-     * 构建用户消息内容
+     * 构建用户消息内容：PRD 在最前，各分片的消息前缀完全一致，便于上游复用前缀缓存；分片说明放在 PRD 之后
      */
-    private String buildUserMessage(String prd, List<TestCase> testCases) {
+    public static String buildUserMessage(ObjectMapper objectMapper, String prd, List<TestCase> testCases, String shardNote) {
         StringBuilder sb = new StringBuilder();
         sb.append("PRD内容：\n").append(prd).append("\n\n");
+        if (shardNote != null) {
+            sb.append(shardNote);
+        }
         sb.append("待评测的测试用例：\n");
         
         try {
@@ -170,47 +399,30 @@ public class EvaluationService {
     }
     
     /**
-     * 解析大模型返回的评测结果（返回单个整体评分对象）
+     * 解析大模型返回的评测结果（返回单个整体评分对象），无法解析时返回 null
      */
-    private EvaluationScore parseEvaluationResponse(String llmResponse) throws Exception {
+    private EvaluationScore parseEvaluationResponse(String llmResponse) {
         if (llmResponse == null || llmResponse.isEmpty()) {
-            return createDefaultScore();
+            return null;
         }
         
-        // 清洗返回内容
-        llmResponse = llmResponse
-                .replaceAll("^```json|```$", "")
-                .replaceAll("^\"|\"$", "")
-                .replaceAll("//.*", "")
-                .trim();
-        
-        try {
-            // 尝试解析为单个JSON对象
-            EvaluationScore score = objectMapper.readValue(llmResponse, EvaluationScore.class);
-            
-            // 验证和修正分数范围
-            validateAndFixScore(score);
-            
-            return score;
-        } catch (Exception e) {
-            log.error("解析评测结果失败，尝试解析为数组格式", e);
-            // 如果解析为对象失败，尝试解析为数组（取第一个元素）
-            try {
-                List<EvaluationScore> scores = objectMapper.readValue(
-                        llmResponse, 
-                        new TypeReference<List<EvaluationScore>>() {}
-                );
-                if (scores != null && !scores.isEmpty()) {
-                    EvaluationScore score = scores.get(0);
-                    validateAndFixScore(score);
-                    return score;
-                }
-            } catch (Exception e2) {
-                log.error("解析为数组也失败", e2);
-            }
-            // 如果都失败，返回默认评分
-            return createDefaultScore();
+        // 根节点为对象时直接绑定，为数组时取第一个元素；自动跳过代码块标记与注释
+        LlmJsonStreamParser.Parsed<EvaluationScore> parsed =
+                LlmJsonStreamParser.parse(objectMapper, llmResponse, EvaluationScore.class);
+        if (parsed.truncated()) {
+            log.error("评测结果不完整（疑似被截断），返回默认评分");
+            return null;
+        }
+        if (parsed.values().isEmpty()) {
+            log.error("解析评测结果失败，返回默认评分");
+            return null;
         }
+        EvaluationScore score = parsed.values().get(0);
+        
+        // 验证和修正分数范围
+        validateAndFixScore(score);
+        
+        return score;
     }
     
     /**
@@ -235,17 +447,6 @@ public class EvaluationService {
         return new EvaluationScore(0, 0, 0);
     }
     
-    private boolean isArkConfigReady() {
-        return StringUtils.hasText(apiKey) && StringUtils.hasText(model);
-    }
-    
-    private ArkService getArkService() {
-        return ArkService.builder()
-                .apiKey(apiKey)
-                .baseUrl(baseUrl)
-                .build();
-    }
-    
     private String loadSystemPrompt() {
         try (InputStream inputStream = systemPromptResource.getInputStream()) {
             return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
@@ -269,5 +470,157 @@ public class EvaluationService {
                 "6. 非冗余度（0-5）：5=无冗余内容；0=冗余或与PRD无关内容严重\n" +
                 "请返回JSON对象格式，包含coverage、correctness、logic、completeness、precision、nonRedundancy六个字段，每个字段都是0-5的整数。";
     }
+    
+    /**
+     * 内容定义的分片切分（见 {@link #shard}），按用例顺序逐条喂入，切出的 [from, to) 区间追加到 closed
+     */
+    private static final class ShardCutter {
+        private final int maxTokens;
+        private final long half;
+        private final long quarter;
+        private int index;
+        private int from;
+        private long size;
+        private long total;
+        
+        private ShardCutter(int maxTokens) {
+            this.maxTokens = maxTokens;
+            this.half = maxTokens / 2;
+            this.quarter = Math.max(1, maxTokens / 4);
+        }
+        
+        void add(int tokens, String caseKey, List<int[]> closed) {
+            if (index > from && size + tokens > maxTokens) {
+                closed.add(new int[]{from, index});
+                from = index;
+                size = 0;
+            }
+            size += tokens;
+            total += tokens;
+            index++;
+            // 以 tokens / quarter 的概率（由用例内容哈希决定）在该用例后切分
+            long hash = Long.parseUnsignedLong(caseKey.substring(0, 15), 16) % 1_000_000L;
+            if (size >= half && hash * quarter < 1_000_000L * tokens) {
+                closed.add(new int[]{from, index});
+                from = index;
+                size = 0;
+            }
+        }
+        
+        void finish(List<int[]> closed) {
+            if (index > from) {
+                closed.add(new int[]{from, index});
+            }
+        }
+    }
+    
+    /**
+     * 边生成边评测的会话，add 与 finish 可在不同线程调用
+     * 用例总量未超出预算前不提交（最终可能整体一次评测）；提交的分片评测在独立的评测线程池执行，结果只写入分片缓存，
+     * finish 等待其完成后按完整用例集评测，已完成的分片直接命中缓存
+     * add 在生成回调中调用：提交在锁外进行，评测线程池已满（拒绝提交）时该分片留给 finish 评测，不在回调线程中执行
+     */
+    public final class Session {
+        private final String prd;
+        private final boolean active;
+        private final String prdKey;
+        private final ShardCutter cutter;
+        private final List<TestCase> cases = new ArrayList<>();
+        private final List<String> keys = new ArrayList<>();
+        private final List<int[]> closed = new ArrayList<>();
+        private final List<Future<EvaluationScore>> futures = new ArrayList<>();
+        // 评测线程池已满未能提前提交的分片，由 finish 随完整用例集评测
+        private final List<String> deferred = new ArrayList<>();
+        private int submitted;
+        private boolean cancelled;
+        
+        private Session(String prd, boolean active) {
+            this.prd = prd;
+            this.active = active;
+            this.prdKey = active ? HashUtils.sha256(prd, stageModelRouter.fingerprint(), systemPrompt) : null;
+            this.cutter = active ? new ShardCutter(shardMaxTokens) : null;
+        }
+        
+        public void add(TestCase testCase) {
+            if (!active) {
+                return;
+            }
+            String key = caseKey(testCase);
+            int tokens = tokens(testCase);
+            List<List<TestCase>> ready = new ArrayList<>();
+            List<String> readyKeys = new ArrayList<>();
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                cases.add(testCase);
+                keys.add(key);
+                cutter.add(tokens, key, closed);
+                if (cutter.total <= shardMaxTokens) {
+                    return;
+                }
+                for (; submitted < closed.size(); submitted++) {
+                    int[] range = closed.get(submitted);
+                    String shardKey = HashUtils.sha256(prdKey, setHash(keys.subList(range[0], range[1]).toArray(new String[0]), 0, range[1] - range[0]));
+                    if (evaluationCache.get(shardKey) != null) {
+                        continue;
+                    }
+                    ready.add(List.copyOf(cases.subList(range[0], range[1])));
+                    readyKeys.add(shardKey);
+                }
+            }
+            for (int i = 0; i < ready.size(); i++) {
+                submit(ready.get(i), readyKeys.get(i));
+            }
+        }
+        
+        private void submit(List<TestCase> shard, String shardKey) {
+            Future<EvaluationScore> future;
+            try {
+                future = evaluationExecutor.submit(RequestTrace.wrap(() -> evaluateShardAndCache(prd, shard, shardKey)));
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    deferred.add(shardKey);
+                }
+                return;
+            }
+            synchronized (this) {
+                if (cancelled) {
+                    future.cancel(true);
+                } else {
+                    futures.add(future);
+                }
+            }
+        }
+        
+        /**
+         * 等待已提交的分片评测完成，再评测最终用例集（即全部 add 过的用例）；线程被中断时取消并抛出 CancellationException
+         */
+        public EvaluationScore finish(List<TestCase> testCases) {
+            List<Future<EvaluationScore>> running;
+            int deferredShards;
+            synchronized (this) {
+                running = new ArrayList<>(futures);
+                deferredShards = deferred.size();
+            }
+            if (deferredShards > 0) {
+                log.info("边生成边评测：评测线程池已满，{} 个分片留到生成结束后评测", deferredShards);
+            }
+            if (!running.isEmpty()) {
+                log.info("边生成边评测：生成结束前已提交 {} 个分片评测", running.size());
+                try {
+                    awaitShards(running);
+                } catch (ExecutionException e) {
+                    // 失败的分片未写入缓存，下面按完整用例集评测时重新评测
+                    log.warn("提前评测分片失败: {}", e.getMessage());
+                }
+            }
+            return evaluateTestCases(prd, testCases);
+        }
+        
+        public synchronized void cancel() {
+            cancelled = true;
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
 }
-
@@ -0,0 +1,236 @@
+package com.example.service;
+
+import com.example.dto.FeishuBatchResponse;
+import com.example.model.FeishuDocument;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 批量获取飞书文档（多文档 PRD：父文档 + 子文档 / 知识库页面）
+ * 1. 按请求顺序展开链接：知识库链接解析为对应文档，并按目录顺序向下展开至指定层级（先序，父页面在子页面之前）
+ * 2. 同一文档只获取一次，展开的文档数不超过单次上限
+ * 3. 文档内容在流水线线程池中并行下载，单次请求同时在途的下载数有上限（全局另受飞书舱壁限制）
+ * 4. 获取成功的文档按展开顺序拼接，单篇失败不影响其余文档
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FeishuBatchService {
+
+    private final FeishuService feishuService;
+    private final ExecutorService pipelineExecutor;
+
+    // 单次请求展开的最大文档数（含失败的）
+    @Value("${feishu.batch.max-documents:50}")
+    private int maxDocuments;
+
+    // 知识库展开的最大层级
+    @Value("${feishu.batch.max-depth:3}")
+    private int maxDepth;
+
+    // 单次请求同时在途的文档下载数
+    @Value("${feishu.batch.concurrency:4}")
+    private int concurrency;
+
+    /**
+     * 批量获取并拼接文档；链接数或层级超限时抛出 IllegalArgumentException，执行线程被中断时抛出 CancellationException
+     */
+    public FeishuBatchResponse fetch(List<String> urls, int depth) {
+        if (urls.size() > maxDocuments) {
+            throw new IllegalArgumentException("单次最多 " + maxDocuments + " 个链接，当前 " + urls.size() + " 个");
+        }
+        if (depth > maxDepth) {
+            throw new IllegalArgumentException("知识库展开层级最多 " + maxDepth + "，当前 " + depth);
+        }
+
+        long start = System.nanoTime();
+        Expansion expansion = new Expansion(depth);
+        for (String url : urls) {
+            expansion.addUrl(url);
+        }
+        List<FeishuDocument> documents = expansion.documents;
+        download(documents);
+
+        int succeeded = (int) documents.stream().filter(FeishuDocument::isSuccess).count();
+        log.info("批量获取飞书文档完成，链接数: {}，文档数: {}，成功: {}，耗时: {} ms", urls.size(), documents.size(),
+                succeeded, (System.nanoTime() - start) / 1_000_000);
+        if (succeeded == 0) {
+            return new FeishuBatchResponse(false, "所有文档获取失败", null, documents, expansion.truncated);
+        }
+        return FeishuBatchResponse.success(concatenate(documents), documents, expansion.truncated);
+    }
+
+    /**
+     * 并行下载待获取的文档，结果写回各文档
+     */
+    private void download(List<FeishuDocument> documents) {
+        Semaphore permits = new Semaphore(Math.max(1, concurrency));
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (FeishuDocument document : documents) {
+                if (document.getDocumentId() == null || document.getMessage() != null) {
+                    continue;
+                }
+                permits.acquire();
+                try {
+                    futures.add(pipelineExecutor.submit(() -> {
+                        try {
+                            downloadOne(document);
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new CancellationException("批量获取已取消");
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("批量获取飞书文档失败: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private void downloadOne(FeishuDocument document) {
+        try {
+            String content = feishuService.fetchDocumentById(document.getDocumentId());
+            document.setContent(content);
+            document.setLength(content.length());
+            document.setSuccess(true);
+        } catch (Exception e) {
+            document.setMessage(e.getMessage());
+        }
+    }
+
+    /**
+     * 按顺序拼接获取成功的文档，每篇前加标题行，便于模型区分文档边界
+     */
+    static String concatenate(List<FeishuDocument> documents) {
+        StringBuilder sb = new StringBuilder();
+        int index = 0;
+        for (FeishuDocument document : documents) {
+            if (!document.isSuccess()) {
+                continue;
+            }
+            String name = document.getTitle() != null ? document.getTitle()
+                    : document.getUrl() != null ? document.getUrl() : document.getDocumentId();
+            if (sb.length() > 0) {
+                sb.append("\n\n");
+            }
+            sb.append("【文档").append(++index).append("：").append(name).append("】\n");
+            sb.append(document.getContent());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 链接展开（串行执行，只调用知识库节点元数据接口，不下载正文）
+     */
+    private final class Expansion {
+        private final int depth;
+        private final List<FeishuDocument> documents = new ArrayList<>();
+        private final Set<String> seen = new HashSet<>();
+        private boolean truncated;
+
+        private Expansion(int depth) {
+            this.depth = depth;
+        }
+
+        void addUrl(String url) {
+            if (documents.size() >= maxDocuments) {
+                truncated = true;
+                return;
+            }
+            String cleanUrl = feishuService.cleanUrl(url);
+            String wikiToken = feishuService.extractWikiToken(cleanUrl);
+            if (wikiToken == null) {
+                String documentId = feishuService.extractDocId(cleanUrl);
+                if (documentId == null) {
+                    add(failed(cleanUrl, 0, "无法从URL中提取文档ID，请检查URL格式"));
+                } else if (seen.add(documentId)) {
+                    FeishuDocument document = new FeishuDocument();
+                    document.setUrl(cleanUrl);
+                    document.setDocumentId(documentId);
+                    add(document);
+                }
+                return;
+            }
+            FeishuService.WikiNode node;
+            try {
+                node = feishuService.getWikiNode(wikiToken);
+            } catch (Exception e) {
+                log.warn("获取知识库节点失败，URL: {}: {}", cleanUrl, e.getMessage());
+                add(failed(cleanUrl, 0, e.getMessage()));
+                return;
+            }
+            addNode(node, cleanUrl, 0);
+        }
+
+        private void addNode(FeishuService.WikiNode node, String url, int level) {
+            if (!seen.add(node.nodeToken())) {
+                return;
+            }
+            if (!node.isDocx()) {
+                FeishuDocument document = failed(url, level, "暂不支持的文档类型: " + node.objType());
+                document.setTitle(node.title());
+                add(document);
+            } else if (seen.add(node.objToken())) {
+                FeishuDocument document = new FeishuDocument();
+                document.setUrl(url);
+                document.setDocumentId(node.objToken());
+                document.setTitle(node.title());
+                document.setDepth(level);
+                add(document);
+            }
+            if (level >= depth || !node.hasChild() || truncated) {
+                return;
+            }
+            List<FeishuService.WikiNode> children;
+            try {
+                children = feishuService.listWikiChildren(node);
+            } catch (Exception e) {
+                log.warn("获取知识库子节点失败，节点: {}: {}", node.nodeToken(), e.getMessage());
+                return;
+            }
+            for (FeishuService.WikiNode child : children) {
+                addNode(child, null, level + 1);
+            }
+        }
+
+        private void add(FeishuDocument document) {
+            if (documents.size() >= maxDocuments) {
+                truncated = true;
+                return;
+            }
+            documents.add(document);
+        }
+
+        private FeishuDocument failed(String url, int level, String message) {
+            FeishuDocument document = new FeishuDocument();
+            document.setUrl(url);
+            document.setDepth(level);
+            document.setMessage(message);
+            return document;
+        }
+    }
+}
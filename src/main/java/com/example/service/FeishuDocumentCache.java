@@ -0,0 +1,122 @@
+package com.example.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 飞书文档内容缓存（内存 LRU，按文档 id）
+ * 每条记录保存文档版本号（revision_id）与内容；FeishuService 先查询文档元数据中的版本号，
+ * 与缓存一致时直接返回缓存内容，版本变化、缓存过期或未缓存时才下载全文
+ * 同时按条目数与内容总字符数限制内存占用，超出时淘汰最久未使用的文档
+ */
+@Service
+@RequiredArgsConstructor
+public class FeishuDocumentCache {
+
+    private final PipelineMetrics pipelineMetrics;
+
+    @Value("${feishu.cache.enabled:true}")
+    private boolean enabled;
+    @Value("${feishu.cache.max-entries:128}")
+    private int maxEntries;
+    @Value("${feishu.cache.max-chars:20000000}")
+    private long maxChars;
+    @Value("${feishu.cache.ttl-hours:24}")
+    private long ttlHours;
+
+    // 访问顺序的 LinkedHashMap 实现 LRU，所有访问均在 this 上同步
+    private LinkedHashMap<String, CachedDocument> entries;
+    private long totalChars;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong stale = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 版本号一致时返回缓存内容（计为命中），否则返回 null：未缓存或已过期计为未命中，版本变化计为过时
+     */
+    public synchronized String get(String documentId, long revision) {
+        if (!enabled) {
+            return null;
+        }
+        CachedDocument entry = entries.get(documentId);
+        if (entry != null && System.currentTimeMillis() - entry.createdAt > TimeUnit.HOURS.toMillis(ttlHours)) {
+            remove(documentId);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            pipelineMetrics.recordFeishuCache("miss");
+            return null;
+        }
+        if (entry.revision != revision) {
+            stale.incrementAndGet();
+            pipelineMetrics.recordFeishuCache("stale");
+            return null;
+        }
+        hits.incrementAndGet();
+        pipelineMetrics.recordFeishuCache("hit");
+        return entry.content;
+    }
+
+    /**
+     * 写入缓存，revision 为下载全文之前查询到的版本号（全文只会比它更新，版本不一致时下次会重新下载）
+     * 单篇文档超过内容总字符上限时不缓存
+     */
+    public synchronized void put(String documentId, long revision, String content) {
+        if (!enabled || content == null || content.length() > maxChars) {
+            return;
+        }
+        remove(documentId);
+        entries.put(documentId, new CachedDocument(revision, content, System.currentTimeMillis()));
+        totalChars += content.length();
+        Iterator<Map.Entry<String, CachedDocument>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries || totalChars > maxChars) {
+            totalChars -= eldest.next().getValue().content.length();
+            eldest.remove();
+        }
+    }
+
+    public synchronized Map<String, Object> stats() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get() + stale.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("entries", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("chars", totalChars);
+        stats.put("maxChars", maxChars);
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.get());
+        stats.put("stale", stale.get());
+        stats.put("hitRate", total == 0 ? 0.0 : (double) hitCount / total);
+        return stats;
+    }
+
+    private void remove(String documentId) {
+        CachedDocument removed = entries.remove(documentId);
+        if (removed != null) {
+            totalChars -= removed.content.length();
+        }
+    }
+
+    private record CachedDocument(long revision, String content, long createdAt) {
+    }
+}
@@ -4,24 +4,54 @@ import com.google.gson.JsonParser;
 import com.lark.oapi.Client;
 import com.lark.oapi.core.request.RequestOptions;
 import com.lark.oapi.core.utils.Jsons;
+import com.lark.oapi.service.docx.v1.model.GetDocumentReq;
+import com.lark.oapi.service.docx.v1.model.GetDocumentResp;
 import com.lark.oapi.service.docx.v1.model.RawContentDocumentReq;
 import com.lark.oapi.service.docx.v1.model.RawContentDocumentResp;
+import com.lark.oapi.service.wiki.v2.model.GetNodeSpaceReq;
+import com.lark.oapi.service.wiki.v2.model.GetNodeSpaceResp;
+import com.lark.oapi.service.wiki.v2.model.ListSpaceNodeReq;
+import com.lark.oapi.service.wiki.v2.model.ListSpaceNodeResp;
+import com.lark.oapi.service.wiki.v2.model.Node;
 import lombok.Getter;
+import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * 飞书文档服务（移除无效QueryFile依赖）
  */
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class FeishuService {
 
+    // 知识库节点链接：https://xxx.feishu.cn/wiki/xxx，节点 token 需经知识库接口换成文档 id
+    private static final Pattern WIKI_TOKEN = Pattern.compile("wiki/([a-zA-Z0-9]+)");
+
+    // 支持的文档URL格式，按顺序匹配
+    private static final Pattern[] DOC_ID_PATTERNS = {
+            Pattern.compile("docx/([a-zA-Z0-9]+)"),          // https://xxx.feishu.cn/docx/xxx
+            Pattern.compile("docs/([a-zA-Z0-9]+)"),          // https://xxx.feishu.cn/docs/xxx
+            Pattern.compile("file_token=([a-zA-Z0-9]+)"),    // ?file_token=xxx
+            Pattern.compile("open_file=([a-zA-Z0-9]+)"),     // ?open_file=xxx
+            Pattern.compile("[^/]+/([a-zA-Z0-9]+)$")         // 兜底：最后一个/后的字符串
+    };
+
+    // 外部调用执行层（飞书舱壁）
+    private final OutboundExecutor outboundExecutor;
+    private final PipelineMetrics pipelineMetrics;
+    private final FeishuDocumentCache documentCache;
+
     // 飞书应用配置
     @Value("${feishu.app.id}")
     private String appId;
@@ -29,73 +59,174 @@ public class FeishuService {
     @Value("${feishu.app.secret}")
     private String appSecret;
 
+    // 开放平台地址（压测时指向本地模拟服务）
+    @Value("${feishu.base-url:https://open.feishu.cn}")
+    private String baseUrl;
+
     // 飞书SDK客户端（单例）
     private Client feishuClient;
     private final ReentrantLock clientLock = new ReentrantLock();
 
     /**
-     * 获取飞书文档内容（核心方法）
+     * 获取飞书文档内容（核心方法），知识库节点链接先解析为对应的文档
      */
     public String fetchDocumentContent(String url) {
         log.info("开始获取飞书文档内容，URL: {}", url);
 
+        long start = System.nanoTime();
+        String fileToken;
         try {
             // 1. 预处理URL并提取文档ID（直接作为file_token使用）
-            String cleanUrl = url.trim().replaceAll("\\\\", "");
-            String fileToken = extractDocId(cleanUrl);
+            String cleanUrl = cleanUrl(url);
+            String wikiToken = extractWikiToken(cleanUrl);
+            if (wikiToken != null) {
+                WikiNode node = getWikiNode(wikiToken);
+                if (!node.isDocx()) {
+                    throw new RuntimeException("知识库节点不是飞书文档（docx），类型: " + node.objType());
+                }
+                fileToken = node.objToken();
+            } else {
+                fileToken = extractDocId(cleanUrl);
+            }
             if (fileToken == null) {
                 throw new RuntimeException("无法从URL中提取文档ID，请检查URL格式");
             }
+        } catch (Exception e) {
+            pipelineMetrics.recordFeishuFetch(start, false);
+            log.error("获取飞书文档内容失败", e);
+            throw new RuntimeException("获取飞书文档内容失败: " + e.getMessage(), e);
+        }
+        return fetchDocument(fileToken, start);
+    }
+
+    /**
+     * 按文档 id 获取文档内容（命中版本号一致的缓存时不下载全文）
+     */
+    public String fetchDocumentById(String fileToken) {
+        return fetchDocument(fileToken, System.nanoTime());
+    }
+
+    private String fetchDocument(String fileToken, long start) {
+        try {
             log.info("使用file_token: {}", fileToken);
 
             // 2. 初始化飞书SDK客户端
             Client client = getFeishuClient();
 
-            // 3. 直接调用文档内容接口（跳过无效的file_token查询）
-            return getDocumentRawContent(client, fileToken);
+            // 3. 查询文档版本号（元数据接口，不含正文），与缓存一致时直接返回缓存内容
+            Long revision = documentCache.isEnabled() ? getDocumentRevision(client, fileToken) : null;
+            if (revision != null) {
+                String cached = documentCache.get(fileToken, revision);
+                if (cached != null) {
+                    log.info("文档版本未变化，使用缓存内容，file_token: {}, revision: {}", fileToken, revision);
+                    pipelineMetrics.recordFeishuFetch(start, true);
+                    return cached;
+                }
+            }
+
+            // 4. 调用文档内容接口下载全文（跳过无效的file_token查询）
+            String content = getDocumentRawContent(client, fileToken);
+            if (revision != null) {
+                documentCache.put(fileToken, revision, content);
+            }
+            pipelineMetrics.recordFeishuFetch(start, true);
+            pipelineMetrics.recordDocumentSize(content.length());
+            return content;
 
         } catch (Exception e) {
+            pipelineMetrics.recordFeishuFetch(start, false);
             log.error("获取飞书文档内容失败", e);
             throw new RuntimeException("获取飞书文档内容失败: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * 去掉首尾空白与转义反斜杠
+     */
+    public String cleanUrl(String url) {
+        return url == null ? null : url.trim().replace("\\", "");
+    }
+
+    /**
+     * 提取知识库节点 token，不是知识库链接时返回 null
+     */
+    public String extractWikiToken(String url) {
+        if (url == null) {
+            return null;
+        }
+        Matcher matcher = WIKI_TOKEN.matcher(url);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
     /**
      * 提取文档ID（兼容所有飞书URL格式）
      */
-    private String extractDocId(String url) {
+    public String extractDocId(String url) {
         if (url == null || url.isEmpty()) {
             log.error("URL为空，无法提取文档ID");
             return null;
         }
 
-        try {
-            // 支持的URL格式匹配
-            String[] patterns = {
-                    "docx/([a-zA-Z0-9]+)",          // https://xxx.feishu.cn/docx/xxx
-                    "docs/([a-zA-Z0-9]+)",          // https://xxx.feishu.cn/docs/xxx
-                    "file_token=([a-zA-Z0-9]+)",    // ?file_token=xxx
-                    "open_file=([a-zA-Z0-9]+)",     // ?open_file=xxx
-                    "[^/]+/([a-zA-Z0-9]+)$"         // 兜底：最后一个/后的字符串
-            };
-
-            for (String patternStr : patterns) {
-                java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(patternStr);
-                java.util.regex.Matcher matcher = pattern.matcher(url);
-                if (matcher.find()) {
-                    String id = matcher.group(1);
-                    log.info("匹配格式[{}]，提取到ID: {}", patternStr, id);
-                    return id;
-                }
+        for (Pattern pattern : DOC_ID_PATTERNS) {
+            Matcher matcher = pattern.matcher(url);
+            if (matcher.find()) {
+                String id = matcher.group(1);
+                log.info("匹配格式[{}]，提取到ID: {}", pattern.pattern(), id);
+                return id;
             }
+        }
 
-            log.warn("所有格式匹配失败，URL: {}", url);
-            return null;
+        log.warn("所有格式匹配失败，URL: {}", url);
+        return null;
+    }
 
-        } catch (Exception e) {
-            log.error("提取文档ID失败", e);
-            return null;
+    /**
+     * 查询知识库节点（节点对应的文档 id、类型、标题、是否有子节点）
+     */
+    public WikiNode getWikiNode(String nodeToken) {
+        Client client = getFeishuClient();
+        GetNodeSpaceReq req = GetNodeSpaceReq.newBuilder()
+                .token(nodeToken)
+                .build();
+        GetNodeSpaceResp resp = outboundExecutor.call(OutboundExecutor.FEISHU,
+                () -> client.wiki().v2().space().getNode(req));
+        if (!resp.success() || resp.getData() == null || resp.getData().getNode() == null) {
+            throw new RuntimeException(String.format("获取知识库节点失败 - code:%s, msg:%s, reqId:%s",
+                    resp.getCode(), resp.getMsg(), resp.getRequestId()));
         }
+        return WikiNode.of(resp.getData().getNode());
+    }
+
+    /**
+     * 列出知识库节点的直接子节点（按知识库目录顺序，自动翻页）
+     */
+    public List<WikiNode> listWikiChildren(WikiNode parent) {
+        Client client = getFeishuClient();
+        List<WikiNode> children = new ArrayList<>();
+        String pageToken = null;
+        do {
+            ListSpaceNodeReq.Builder builder = ListSpaceNodeReq.newBuilder()
+                    .spaceId(parent.spaceId())
+                    .parentNodeToken(parent.nodeToken())
+                    .pageSize(50);
+            if (pageToken != null) {
+                builder.pageToken(pageToken);
+            }
+            ListSpaceNodeReq req = builder.build();
+            ListSpaceNodeResp resp = outboundExecutor.call(OutboundExecutor.FEISHU,
+                    () -> client.wiki().v2().spaceNode().list(req));
+            if (!resp.success() || resp.getData() == null) {
+                throw new RuntimeException(String.format("获取知识库子节点失败 - code:%s, msg:%s, reqId:%s",
+                        resp.getCode(), resp.getMsg(), resp.getRequestId()));
+            }
+            if (resp.getData().getItems() != null) {
+                for (Node node : resp.getData().getItems()) {
+                    children.add(WikiNode.of(node));
+                }
+            }
+            pageToken = Boolean.TRUE.equals(resp.getData().getHasMore()) ? resp.getData().getPageToken() : null;
+        } while (pageToken != null && !pageToken.isEmpty());
+        return children;
     }
 
     /**
@@ -111,6 +242,7 @@ public class FeishuService {
             if (feishuClient == null) {
                 // 构建飞书客户端（官方SDK方式）
                 feishuClient = Client.newBuilder(appId, appSecret)
+                        .openBaseUrl(baseUrl)
                         .build();
                 log.info("飞书SDK客户端初始化成功");
             }
@@ -120,6 +252,29 @@ public class FeishuService {
         }
     }
 
+    /**
+     * 获取文档当前版本号，失败时返回 null（不使用缓存，直接下载全文）
+     */
+    private Long getDocumentRevision(Client client, String fileToken) {
+        try {
+            GetDocumentReq req = GetDocumentReq.newBuilder()
+                    .documentId(fileToken)
+                    .build();
+            GetDocumentResp resp = outboundExecutor.call(OutboundExecutor.FEISHU,
+                    () -> client.docx().v1().document().get(req));
+            if (!resp.success() || resp.getData() == null || resp.getData().getDocument() == null
+                    || resp.getData().getDocument().getRevisionId() == null) {
+                log.warn("获取文档版本号失败，跳过缓存 - code:{}, msg:{}, file_token: {}",
+                        resp.getCode(), resp.getMsg(), fileToken);
+                return null;
+            }
+            return resp.getData().getDocument().getRevisionId().longValue();
+        } catch (Exception e) {
+            log.warn("获取文档版本号失败，跳过缓存，file_token: {}: {}", fileToken, e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * 获取文档原始内容（仅保留核心接口，无无效依赖）
      */
@@ -138,7 +293,8 @@ public class FeishuService {
 
             // 调用官方SDK核心接口
 //            RawContentDocumentResp resp = client.docx().v1().document().rawContent(req, options);
-            RawContentDocumentResp resp = client.docx().v1().document().rawContent(req);
+            RawContentDocumentResp resp = outboundExecutor.call(OutboundExecutor.FEISHU,
+                    () -> client.docx().v1().document().rawContent(req));
             // 处理服务端错误
             if (!resp.success()) {
                 String errorMsg = String.format(
@@ -167,6 +323,22 @@ public class FeishuService {
         }
     }
 
+    /**
+     * 知识库节点：objToken 为节点对应的文档 id，objType 为文档类型（docx、sheet 等）
+     */
+    public record WikiNode(String spaceId, String nodeToken, String objToken, String objType, String title,
+                           boolean hasChild) {
+
+        static WikiNode of(Node node) {
+            return new WikiNode(node.getSpaceId(), node.getNodeToken(), node.getObjToken(), node.getObjType(),
+                    node.getTitle(), Boolean.TRUE.equals(node.getHasChild()));
+        }
+
+        public boolean isDocx() {
+            return "docx".equals(objType);
+        }
+    }
+
     /**
      * 备用Token缓存类（无实际使用，仅兼容代码结构）
      */
@@ -0,0 +1,233 @@
+package com.example.service;
+
+import com.example.model.TestCase;
+import com.example.util.HashUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 测试用例生成结果缓存
+ * 以 (PRD 内容, 模型, 提示词内容) 的哈希为键，内存 LRU + 磁盘追加日志两级存储，重启后从磁盘恢复
+ * 每条记录同时保存本次阶段1 解析出的功能点，命中缓存（包括重启后）时仍可生成覆盖率报告
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GenerationCache {
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${pipeline.cache.enabled:true}")
+    private boolean enabled;
+    @Value("${pipeline.cache.max-entries:256}")
+    private int maxEntries;
+    @Value("${pipeline.cache.ttl-hours:72}")
+    private long ttlHours;
+    @Value("${pipeline.cache.file:data/generation-cache.jsonl}")
+    private String cacheFile;
+
+    // 访问顺序的 LinkedHashMap 实现 LRU，所有访问均在 this 上同步
+    private LinkedHashMap<String, CacheEntry> entries;
+    private Path cachePath;
+    private int diskLines;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        if (!enabled) {
+            return;
+        }
+        this.cachePath = Paths.get(cacheFile);
+        loadFromDisk();
+    }
+
+    /**
+     * 计算缓存键
+     */
+    public String key(String... parts) {
+        return HashUtils.sha256(parts);
+    }
+
+    /**
+     * 读取缓存，未命中或已过期返回 null
+     */
+    public synchronized List<TestCase> get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        CacheEntry entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (isExpired(entry)) {
+            entries.remove(key);
+            expirations.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return new ArrayList<>(entry.getTestCases());
+    }
+
+    /**
+     * 读取缓存记录中保存的阶段1 功能点（不计入命中统计），未缓存、已过期或记录中没有功能点时返回 null
+     */
+    public synchronized List<Map<String, Object>> functionPoints(String key) {
+        if (!enabled) {
+            return null;
+        }
+        CacheEntry entry = entries.get(key);
+        return entry == null || isExpired(entry) ? null : entry.getFunctionPoints();
+    }
+
+    /**
+     * 写入缓存：内存立即生效，同时追加写入磁盘；functionPoints 为生成这批用例的阶段1 功能点，可为 null
+     */
+    public synchronized void put(String key, List<TestCase> testCases, List<Map<String, Object>> functionPoints) {
+        if (!enabled || testCases == null || testCases.isEmpty()) {
+            return;
+        }
+        CacheEntry entry = new CacheEntry(key, System.currentTimeMillis(), new ArrayList<>(testCases),
+                functionPoints == null ? null : new ArrayList<>(functionPoints));
+        entries.put(key, entry);
+        appendToDisk(entry);
+    }
+
+    public synchronized Map<String, Object> stats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("entries", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("expirations", expirations.get());
+        stats.put("hitRate", total == 0 ? 0.0 : (double) hitCount / total);
+        stats.put("diskLines", diskLines);
+        return stats;
+    }
+
+    private boolean isExpired(CacheEntry entry) {
+        return System.currentTimeMillis() - entry.getCreatedAt() > TimeUnit.HOURS.toMillis(ttlHours);
+    }
+
+    private void loadFromDisk() {
+        if (!Files.exists(cachePath)) {
+            return;
+        }
+        int lines = 0;
+        try (BufferedReader reader = Files.newBufferedReader(cachePath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                lines++;
+                try {
+                    CacheEntry entry = objectMapper.readValue(line, CacheEntry.class);
+                    if (!isExpired(entry)) {
+                        entries.put(entry.getKey(), entry);
+                    }
+                } catch (IOException e) {
+                    log.warn("跳过损坏的缓存记录（第{}行）", lines);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("读取生成结果缓存文件失败: {}", cachePath, e);
+            return;
+        }
+        diskLines = lines;
+        log.info("从磁盘恢复生成结果缓存 {} 条（文件共 {} 行）", entries.size(), lines);
+        // 追加日志中过期、被覆盖或被淘汰的记录过多时压缩重写
+        if (lines > entries.size() * 2 && lines > maxEntries) {
+            compact();
+        }
+    }
+
+    private void appendToDisk(CacheEntry entry) {
+        try {
+            Path parent = cachePath.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            String line = objectMapper.writeValueAsString(entry) + System.lineSeparator();
+            Files.writeString(cachePath, line, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            diskLines++;
+            if (diskLines > maxEntries * 2) {
+                compact();
+            }
+        } catch (IOException e) {
+            log.warn("写入生成结果缓存文件失败: {}", cachePath, e);
+        }
+    }
+
+    /**
+     * 仅保留内存中仍然有效的记录，写入临时文件后原子替换
+     */
+    private void compact() {
+        Path tmp = cachePath.resolveSibling(cachePath.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (CacheEntry entry : entries.values()) {
+                writer.write(objectMapper.writeValueAsString(entry));
+                writer.write(System.lineSeparator());
+            }
+        } catch (IOException e) {
+            log.warn("压缩生成结果缓存文件失败", e);
+            return;
+        }
+        try {
+            Files.move(tmp, cachePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            diskLines = entries.size();
+            log.info("生成结果缓存文件已压缩，保留 {} 条", diskLines);
+        } catch (IOException e) {
+            log.warn("替换生成结果缓存文件失败", e);
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    private static class CacheEntry {
+        private String key;
+        private long createdAt;
+        private List<TestCase> testCases;
+        // 旧版记录中没有该字段
+        private List<Map<String, Object>> functionPoints;
+    }
+}
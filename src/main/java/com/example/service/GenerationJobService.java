@@ -0,0 +1,149 @@
+package com.example.service;
+
+import com.example.model.GenerationJob;
+import com.example.model.RequestDiagnostics;
+import com.example.model.TestCase;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步测试用例生成任务服务
+ * 提交后立即返回任务ID，由有界任务线程池执行三阶段流水线；支持状态查询与取消
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GenerationJobService {
+
+    private final TestCaseService testCaseService;
+    private final ExecutorService jobExecutor;
+    private final RequestTracker requestTracker;
+
+    // 已结束任务的保留时长
+    @Value("${pipeline.jobs.retention-minutes:60}")
+    private long retentionMinutes;
+
+    private final Map<String, GenerationJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, Future<?>> futures = new ConcurrentHashMap<>();
+
+    /**
+     * 提交生成任务，任务队列已满时抛出 IllegalStateException
+     */
+    public GenerationJob submit(String prd, boolean bypassCache) {
+        purgeExpired();
+        GenerationJob job = new GenerationJob(UUID.randomUUID().toString());
+        jobs.put(job.getId(), job);
+        try {
+            futures.put(job.getId(), jobExecutor.submit(() -> run(job, prd, bypassCache)));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw new IllegalStateException("生成任务队列已满，请稍后重试");
+        }
+        log.info("提交生成任务 {}，PRD长度: {}", job.getId(), prd.length());
+        return job;
+    }
+
+    public GenerationJob get(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * 取消任务：排队中的任务不再执行，运行中的任务中断正在进行的大模型调用
+     */
+    public GenerationJob cancel(String jobId) {
+        GenerationJob job = jobs.get(jobId);
+        if (job == null) {
+            return null;
+        }
+        synchronized (job) {
+            if (job.isFinished()) {
+                return job;
+            }
+            job.setStatus(GenerationJob.Status.CANCELLED);
+            job.setMessage("任务已取消");
+            job.setFinishedAt(System.currentTimeMillis());
+        }
+        Future<?> future = futures.remove(jobId);
+        if (future != null) {
+            future.cancel(true);
+        }
+        log.info("取消生成任务 {}", jobId);
+        return job;
+    }
+
+    private void run(GenerationJob job, String prd, boolean bypassCache) {
+        synchronized (job) {
+            if (job.isFinished()) {
+                return;
+            }
+            job.setStatus(GenerationJob.Status.RUNNING);
+            job.setStartedAt(System.currentTimeMillis());
+        }
+        RequestTrace trace = requestTracker.begin("job");
+        GenerationJob.Status status;
+        String message;
+        List<TestCase> testCases = null;
+        try {
+            testCases = testCaseService.generateTestCases(prd, bypassCache, new TestCaseStreamListener() {
+                @Override
+                public void onStage(String stage, String message) {
+                    job.setStage(stage);
+                    job.setMessage(message);
+                }
+
+                @Override
+                public void onTestCase(TestCase testCase) {
+                }
+            });
+            status = GenerationJob.Status.SUCCEEDED;
+            message = "生成成功";
+        } catch (CancellationException e) {
+            status = GenerationJob.Status.CANCELLED;
+            message = "任务已取消";
+        } catch (Exception e) {
+            log.error("生成任务 {} 执行失败", job.getId(), e);
+            status = GenerationJob.Status.FAILED;
+            message = "生成测试用例失败: " + e.getMessage();
+        } finally {
+            requestTracker.finish(trace);
+            futures.remove(job.getId());
+        }
+        finish(job, status, message, testCases, trace.snapshot());
+    }
+
+    private void finish(GenerationJob job, GenerationJob.Status status, String message, List<TestCase> testCases,
+                        RequestDiagnostics diagnostics) {
+        synchronized (job) {
+            // 已被取消的任务保持取消状态
+            if (job.isFinished()) {
+                job.setDiagnostics(diagnostics);
+                return;
+            }
+            job.setTestCases(testCases);
+            job.setDiagnostics(diagnostics);
+            job.setMessage(message);
+            job.setFinishedAt(System.currentTimeMillis());
+            job.setStatus(status);
+        }
+        log.info("生成任务 {} 结束，状态: {}", job.getId(), status);
+    }
+
+    private void purgeExpired() {
+        long expireBefore = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(retentionMinutes);
+        jobs.values().removeIf(job -> job.isFinished()
+                && job.getFinishedAt() != null && job.getFinishedAt() < expireBefore);
+        futures.keySet().retainAll(jobs.keySet());
+    }
+}
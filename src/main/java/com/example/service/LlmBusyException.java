@@ -0,0 +1,14 @@
+package com.example.service;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 大模型调用繁忙：限流器排队超时或方舟舱壁排队已满
+ * 属于可重试的暂时性错误，生成流水线不再回退规则引擎，而是直接告知调用方稍后重试
+ */
+public class LlmBusyException extends RejectedExecutionException {
+
+    public LlmBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.service;
+
+import com.example.util.TokenEstimator;
+import com.volcengine.ark.runtime.exception.ArkHttpException;
+import com.volcengine.ark.runtime.model.completion.chat.ChatCompletionChoice;
+import com.volcengine.ark.runtime.model.completion.chat.ChatCompletionRequest;
+import com.volcengine.ark.runtime.model.completion.chat.ChatCompletionResult;
+import com.volcengine.ark.runtime.model.completion.chat.ChatMessage;
+import com.volcengine.ark.runtime.model.completion.chat.ChatMessageRole;
+import com.volcengine.ark.runtime.service.ArkService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * 火山方舟大模型客户端（全局单例）
+ * 统一持有 ArkService，复用连接池与调度线程，应用关闭时统一释放
+ * 所有调用先经 ArkRateLimiter 限流，再经 OutboundExecutor 的 ark 舱壁执行；遇到 429/5xx 时退避重试
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LlmClient {
+
+    private final OutboundExecutor outboundExecutor;
+    private final ArkRateLimiter rateLimiter;
+    private final RequestHedger requestHedger;
+    private final StageModelRouter stageModelRouter;
+    private final PipelineMetrics pipelineMetrics;
+
+    // 从配置文件读取火山 SDK 必要配置
+    @Value("${volc.ark.api-key:}")
+    private String apiKey;
+    @Value("${volc.ark.model:}")
+    private String model;
+    @Value("${volc.ark.base-url:https://ark.cn-beijing.volces.com/api/v3}")
+    private String baseUrl;
+    @Value("${volc.ark.enabled:}")
+    private boolean llmEnabled;
+
+    // 连接池与调度器配置
+    @Value("${volc.ark.client.max-idle-connections:16}")
+    private int maxIdleConnections;
+    @Value("${volc.ark.client.keep-alive-seconds:300}")
+    private long keepAliveSeconds;
+    @Value("${volc.ark.client.max-requests:64}")
+    private int maxRequests;
+    @Value("${volc.ark.client.max-requests-per-host:32}")
+    private int maxRequestsPerHost;
+    @Value("${volc.ark.client.timeout-seconds:600}")
+    private long timeoutSeconds;
+    @Value("${volc.ark.client.connect-timeout-seconds:10}")
+    private long connectTimeoutSeconds;
+    @Value("${volc.ark.client.retry-times:0}")
+    private int retryTimes;
+    // 被限流/过载（429/5xx）时的重试次数，重试前重新经过限流器排队
+    @Value("${volc.ark.limit.overload-retries:2}")
+    private int overloadRetries;
+    @Value("${volc.ark.limit.overload-backoff-ms:1000}")
+    private long overloadBackoffMs;
+
+    private ArkService arkService;
+
+    @PostConstruct
+    public void init() {
+        if (!llmEnabled || !isArkConfigReady()) {
+            log.warn("火山大模型未启用或配置不完整，跳过 ArkService 初始化");
+            return;
+        }
+        this.arkService = ArkService.builder()
+                .apiKey(apiKey)
+                .baseUrl(baseUrl)
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveSeconds, TimeUnit.SECONDS))
+                .dispatcher(buildDispatcher())
+                .timeout(Duration.ofSeconds(timeoutSeconds))
+                .connectTimeout(Duration.ofSeconds(connectTimeoutSeconds))
+                .retryTimes(retryTimes)
+                .build();
+        log.info("ArkService 初始化完成，model: {}, maxRequests: {}, keepAlive: {}s",
+                model, maxRequests, keepAliveSeconds);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (arkService != null) {
+            try {
+                arkService.shutdownExecutor();
+                log.info("ArkService 资源已释放");
+            } catch (Exception e) {
+                log.warn("关闭 ArkService 资源失败", e);
+            }
+        }
+    }
+
+    /**
+     * 客户端是否可用（已启用且配置完整）
+     */
+    public boolean isReady() {
+        return arkService != null;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    /**
+     * 发起一次对话调用，返回模型输出文本（去除首尾空白）
+     * 调用失败时直接抛出异常，由调用方决定兜底策略
+     */
+    public String chat(String systemPrompt, String userContent) {
+        return chat("chat", systemPrompt, userContent);
+    }
+
+    /**
+     * 按阶段发起对话调用：模型与参数由阶段路由决定，阶段延迟单独统计，调用过慢时按阶段延迟分布发起对冲请求
+     */
+    public String chat(String stage, String systemPrompt, String userContent) {
+        return chat(stageModelRouter.route(stage), systemPrompt, userContent);
+    }
+
+    /**
+     * 使用已确定的阶段路由发起对话调用（调用方需要回报输出解析结果时使用）
+     */
+    public String chat(StageModelRouter.Route route, String systemPrompt, String userContent) {
+        if (!isReady()) {
+            throw new IllegalStateException("火山大模型未启用或配置不完整");
+        }
+        return requestHedger.call(route.getStage(), () -> chatOnce(route, systemPrompt, userContent));
+    }
+
+    private String chatOnce(StageModelRouter.Route route, String systemPrompt, String userContent) {
+        ChatCompletionRequest request = buildRequest(route, systemPrompt, userContent, false);
+
+        long start = System.nanoTime();
+        ChatCompletionResult result = execute(route, systemPrompt, userContent,
+                () -> arkService.createChatCompletion(request),
+                r -> r.getUsage() != null ? r.getUsage().getTotalTokens() : -1,
+                () -> true);
+        stageModelRouter.recordLatency(route, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        if (result.getUsage() != null) {
+            pipelineMetrics.recordTokens(route, result.getUsage().getPromptTokens(), result.getUsage().getCompletionTokens());
+        }
+        List<ChatCompletionChoice> choices = result.getChoices();
+        if (choices != null && !choices.isEmpty() && choices.get(0).getMessage().getContent() != null) {
+            return String.valueOf(choices.get(0).getMessage().getContent()).trim();
+        }
+        return "";
+    }
+
+    /**
+     * 流式对话调用：每收到一段增量输出即回调 onDelta，结束后返回完整输出文本
+     * 请求最后一个数据块附带用量，用于修正限流器的 Token 桶
+     */
+    public String chatStream(StageModelRouter.Route route, String systemPrompt, String userContent, Consumer<String> onDelta) {
+        if (!isReady()) {
+            throw new IllegalStateException("火山大模型未启用或配置不完整");
+        }
+        ChatCompletionRequest request = buildRequest(route, systemPrompt, userContent, true);
+        // 已向调用方推送过增量输出后不再重试，避免重复内容
+        AtomicBoolean emitted = new AtomicBoolean();
+        // 用量仅出现在最后一个数据块（choices 为空），未返回时为 -1
+        AtomicLong promptTokens = new AtomicLong(-1);
+        AtomicLong completionTokens = new AtomicLong(-1);
+        AtomicLong totalTokens = new AtomicLong(-1);
+        long start = System.nanoTime();
+        String text = execute(route, systemPrompt, userContent, () -> {
+            StringBuilder full = new StringBuilder();
+            arkService.streamChatCompletion(request).blockingForEach(chunk -> {
+                if (chunk.getUsage() != null) {
+                    promptTokens.set(chunk.getUsage().getPromptTokens());
+                    completionTokens.set(chunk.getUsage().getCompletionTokens());
+                    totalTokens.set(chunk.getUsage().getTotalTokens());
+                }
+                if (chunk.getChoices() == null || chunk.getChoices().isEmpty()) {
+                    return;
+                }
+                Object content = chunk.getChoices().get(0).getMessage().getContent();
+                if (content != null) {
+                    String delta = String.valueOf(content);
+                    if (!delta.isEmpty()) {
+                        full.append(delta);
+                        emitted.set(true);
+                        onDelta.accept(delta);
+                    }
+                }
+            });
+            return full.toString().trim();
+        }, r -> totalTokens.get(), () -> !emitted.get());
+        stageModelRouter.recordLatency(route, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        if (totalTokens.get() >= 0) {
+            pipelineMetrics.recordTokens(route, promptTokens.get(), completionTokens.get());
+        }
+        return text;
+    }
+
+    /**
+     * 限流 + 舱壁内执行一次调用，429/5xx 时回退并发上限并在允许时重试；最终失败（非取消、非排队超时）计入阶段路由统计
+     * 限流器或舱壁排队超时/已满时抛出 LlmBusyException
+     */
+    private <T> T execute(StageModelRouter.Route route, String systemPrompt, String userContent, Callable<T> call,
+                          ToLongFunction<T> usage, BooleanSupplier retryable) {
+        try {
+            return executeWithRetry(route, systemPrompt, userContent, call, usage, retryable);
+        } catch (CancellationException | LlmBusyException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            stageModelRouter.recordFailure(route);
+            throw e;
+        }
+    }
+
+    private <T> T executeWithRetry(StageModelRouter.Route route, String systemPrompt, String userContent,
+                                   Callable<T> call, ToLongFunction<T> usage, BooleanSupplier retryable) {
+        long inputTokens = TokenEstimator.estimate(systemPrompt) + TokenEstimator.estimate(userContent);
+        RequestTrace trace = RequestTrace.current();
+        for (int attempt = 0; ; attempt++) {
+            long waitStart = System.nanoTime();
+            ArkRateLimiter.Permit permit = rateLimiter.acquire(inputTokens);
+            long start = System.nanoTime();
+            try {
+                T result = outboundExecutor.call(OutboundExecutor.ARK, () -> {
+                    // 限流排队 + 舱壁排队时间
+                    if (trace != null) {
+                        trace.recordQueueWait(System.nanoTime() - waitStart);
+                    }
+                    return call.call();
+                });
+                pipelineMetrics.recordArkCall(route, start, null);
+                permit.success(usage.applyAsLong(result));
+                return result;
+            } catch (RuntimeException e) {
+                pipelineMetrics.recordArkCall(route, start, e);
+                if (e instanceof RejectedExecutionException && !(e instanceof LlmBusyException)) {
+                    // 方舟舱壁排队已满
+                    throw new LlmBusyException(e.getMessage());
+                }
+                int statusCode = statusCodeOf(e);
+                if (statusCode != 429 && statusCode < 500) {
+                    throw e;
+                }
+                permit.overloaded();
+                if (attempt >= overloadRetries || !retryable.getAsBoolean()) {
+                    throw e;
+                }
+                log.warn("方舟返回 {}，{}ms 后第 {} 次重试", statusCode, overloadBackoffMs * (attempt + 1), attempt + 1);
+                if (trace != null) {
+                    trace.recordRetry();
+                }
+            } finally {
+                permit.release();
+            }
+            try {
+                Thread.sleep(overloadBackoffMs * (attempt + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("方舟调用已取消");
+            }
+        }
+    }
+
+    static int statusCodeOf(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ArkHttpException arkHttpException) {
+                return arkHttpException.statusCode;
+            }
+        }
+        return -1;
+    }
+
+    private ChatCompletionRequest buildRequest(StageModelRouter.Route route, String systemPrompt, String userContent,
+                                               boolean stream) {
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(ChatMessage.builder().role(ChatMessageRole.SYSTEM).content(systemPrompt).build());
+        messages.add(ChatMessage.builder().role(ChatMessageRole.USER).content(userContent).build());
+        // 构建 thinking 对象
+        ChatCompletionRequest.ChatCompletionRequestThinking thinking =
+                new ChatCompletionRequest.ChatCompletionRequestThinking("disabled");
+
+        return ChatCompletionRequest.builder()
+                .model(route.getModel())
+                .messages(messages)
+                .temperature(route.getTemperature())
+                .maxTokens(route.getMaxTokens())
+                .thinking(thinking)
+                // 流式调用请求在最后一个数据块返回用量
+                .streamOptions(stream ? new ChatCompletionRequest.ChatCompletionRequestStreamOptions(true) : null)
+                .build();
+    }
+
+    private boolean isArkConfigReady() {
+        return StringUtils.hasText(apiKey) && StringUtils.hasText(model);
+    }
+
+    /**
+     * 有界调度器：线程数与并发请求数一致，空闲线程 60 秒回收
+     */
+    private Dispatcher buildDispatcher() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                0, maxRequests, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "ark-http-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        Dispatcher dispatcher = new Dispatcher(executor);
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+        return dispatcher;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 外部阻塞调用统一执行层（火山方舟、飞书）
+ * 每个上游一个舱壁：信号量限制并发调用数，等待数超过上限直接拒绝；
+ * 调用直接在调用方线程上执行，每次调用只占用一个线程，许可在调用真正结束后才释放；
+ * 调用方为虚拟线程时（execution.mode: virtual）等待许可与阻塞 I/O 都不占用平台线程
+ */
+@Service
+@Slf4j
+public class OutboundExecutor {
+
+    public static final String ARK = "ark";
+    public static final String FEISHU = "feishu";
+
+    private final Map<String, Bulkhead> bulkheads = new LinkedHashMap<>();
+
+    public OutboundExecutor(
+            @Value("${execution.ark.max-concurrency:32}") int arkMaxConcurrency,
+            @Value("${execution.ark.max-queue:1000}") int arkMaxQueue,
+            @Value("${execution.feishu.max-concurrency:8}") int feishuMaxConcurrency,
+            @Value("${execution.feishu.max-queue:200}") int feishuMaxQueue) {
+        bulkheads.put(ARK, new Bulkhead(arkMaxConcurrency, arkMaxQueue));
+        bulkheads.put(FEISHU, new Bulkhead(feishuMaxConcurrency, feishuMaxQueue));
+        log.info("外部调用执行层初始化完成，ark 并发: {}，feishu 并发: {}", arkMaxConcurrency, feishuMaxConcurrency);
+    }
+
+    /**
+     * 在指定上游的舱壁内执行一次阻塞调用
+     * 等待数超限抛出 RejectedExecutionException；等待许可或调用过程中被中断时抛出 CancellationException
+     */
+    public <T> T call(String upstream, Callable<T> task) {
+        Bulkhead bulkhead = bulkheads.get(upstream);
+        if (bulkhead == null) {
+            throw new IllegalArgumentException("未知的上游: " + upstream);
+        }
+        if (bulkhead.waiting.incrementAndGet() > bulkhead.maxQueue) {
+            bulkhead.waiting.decrementAndGet();
+            bulkhead.rejected.incrementAndGet();
+            throw new RejectedExecutionException(upstream + " 调用排队数已达上限 " + bulkhead.maxQueue);
+        }
+        long waitStart = System.nanoTime();
+        try {
+            bulkhead.permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException(upstream + " 调用已取消");
+        } finally {
+            bulkhead.waiting.decrementAndGet();
+        }
+        bulkhead.waitNanos.addAndGet(System.nanoTime() - waitStart);
+        bulkhead.active.incrementAndGet();
+        try {
+            return task.call();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException(upstream + " 调用已取消");
+        } catch (RuntimeException e) {
+            bulkhead.failed.incrementAndGet();
+            throw e;
+        } catch (Exception e) {
+            bulkhead.failed.incrementAndGet();
+            throw new IllegalStateException(e.getMessage(), e);
+        } finally {
+            bulkhead.active.decrementAndGet();
+            bulkhead.completed.incrementAndGet();
+            bulkhead.permits.release();
+        }
+    }
+
+    /**
+     * 各上游的并发、排队与利用率统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        bulkheads.forEach((upstream, bulkhead) -> stats.put(upstream, bulkhead.stats()));
+        return stats;
+    }
+
+    private static class Bulkhead {
+        private final int maxConcurrent;
+        private final int maxQueue;
+        private final Semaphore permits;
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong waitNanos = new AtomicLong();
+
+        Bulkhead(int maxConcurrent, int maxQueue) {
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueue = maxQueue;
+            this.permits = new Semaphore(maxConcurrent, true);
+        }
+
+        Map<String, Object> stats() {
+            long done = completed.get();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("maxConcurrent", maxConcurrent);
+            stats.put("active", active.get());
+            stats.put("utilization", (double) active.get() / maxConcurrent);
+            stats.put("maxQueue", maxQueue);
+            stats.put("waiting", waiting.get());
+            stats.put("completed", done);
+            stats.put("failed", failed.get());
+            stats.put("rejected", rejected.get());
+            stats.put("avgWaitMs", done == 0 ? 0.0 : waitNanos.get() / 1_000_000.0 / done);
+            return stats;
+        }
+    }
+}
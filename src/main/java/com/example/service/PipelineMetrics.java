@@ -0,0 +1,194 @@
+package com.example.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 生成与评测链路指标（Micrometer，经 /actuator/prometheus 暴露）
+ * testcase.stage：各阶段耗时；ark.call：方舟调用耗时与结果；ark.tokens：Token 用量；
+ * testcase.fallback：规则引擎兜底次数；llm.parse.failures：输出解析失败次数；
+ * feishu.fetch：飞书文档获取耗时；feishu.cache：飞书文档缓存命中/未命中/版本过时次数；testcase.result.size / feishu.document.size：结果规模；
+ * testcase.duplicates.removed：近似去重去掉的用例数
+ * 同时写入当前线程关联的 RequestTrace（如有），用于单次请求的诊断明细
+ */
+@Service
+@RequiredArgsConstructor
+public class PipelineMetrics {
+
+    private final MeterRegistry registry;
+
+    /**
+     * 记录流水线阶段耗时，start 为 System.nanoTime() 起点
+     */
+    public void recordStage(String stage, long start, boolean success) {
+        long nanos = System.nanoTime() - start;
+        RequestTrace trace = RequestTrace.current();
+        if (trace != null) {
+            trace.recordStage(stage, nanos);
+        }
+        Timer.builder("testcase.stage")
+                .description("三阶段流水线与评测各阶段耗时")
+                .tag("stage", stage)
+                .tag("outcome", success ? "success" : "failure")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一次方舟调用（单次尝试）的耗时与结果，error 为 null 表示成功
+     */
+    public void recordArkCall(StageModelRouter.Route route, long start, Throwable error) {
+        String outcome = error == null ? "success" : causeOf(error);
+        RequestTrace trace = RequestTrace.current();
+        if (trace != null) {
+            trace.recordCall(route.getStage(), route.getModel(), error != null);
+        }
+        Timer.builder("ark.call")
+                .description("火山方舟调用耗时")
+                .tag("stage", route.getStage())
+                .tag("model", String.valueOf(route.getModel()))
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (error != null) {
+            Counter.builder("ark.call.errors")
+                    .description("火山方舟调用失败次数（按原因）")
+                    .tag("stage", route.getStage())
+                    .tag("cause", outcome)
+                    .register(registry)
+                    .increment();
+        }
+    }
+
+    public void recordTokens(StageModelRouter.Route route, long promptTokens, long completionTokens) {
+        RequestTrace trace = RequestTrace.current();
+        if (trace != null) {
+            trace.recordTokens(promptTokens, completionTokens);
+        }
+        tokenCounter(route, "prompt").increment(promptTokens);
+        tokenCounter(route, "completion").increment(completionTokens);
+    }
+
+    public void recordFallback(String reason) {
+        RequestTrace trace = RequestTrace.current();
+        if (trace != null) {
+            trace.markFallback();
+        }
+        Counter.builder("testcase.fallback")
+                .description("回退规则引擎生成的次数")
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordParseFailure(String stage) {
+        Counter.builder("llm.parse.failures")
+                .description("大模型输出无法解析为预期结构的次数")
+                .tag("stage", stage)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordFeishuFetch(long start, boolean success) {
+        Timer.builder("feishu.fetch")
+                .description("飞书文档获取耗时")
+                .tag("outcome", success ? "success" : "failure")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录飞书文档缓存查询结果，result 为 hit / miss / stale
+     */
+    public void recordFeishuCache(String result) {
+        Counter.builder("feishu.cache")
+                .description("飞书文档缓存查询次数")
+                .tag("result", result)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 记录生成结果的测试用例数量，source 为 llm / cache / fallback
+     */
+    public void recordResultSize(String source, int testCases) {
+        RequestTrace trace = RequestTrace.current();
+        if (trace != null && "cache".equals(source)) {
+            trace.markCacheHit();
+        }
+        DistributionSummary.builder("testcase.result.size")
+                .description("单次生成的测试用例数量")
+                .baseUnit("testcases")
+                .tag("source", source)
+                .register(registry)
+                .record(testCases);
+    }
+
+    public void recordDuplicatesRemoved(int duplicates) {
+        Counter.builder("testcase.duplicates.removed")
+                .description("近似去重去掉的测试用例数")
+                .register(registry)
+                .increment(duplicates);
+    }
+
+    public void recordDocumentSize(int chars) {
+        DistributionSummary.builder("feishu.document.size")
+                .description("飞书文档内容长度")
+                .baseUnit("chars")
+                .register(registry)
+                .record(chars);
+    }
+
+    private Counter tokenCounter(StageModelRouter.Route route, String type) {
+        return Counter.builder("ark.tokens")
+                .description("火山方舟 Token 用量")
+                .tag("stage", route.getStage())
+                .tag("model", String.valueOf(route.getModel()))
+                .tag("type", type)
+                .register(registry);
+    }
+
+    /**
+     * 失败原因分类：throttled(429) / server_error(5xx) / client_error(4xx) / timeout / rejected / cancelled / error
+     */
+    private static String causeOf(Throwable error) {
+        if (error instanceof CancellationException) {
+            return "cancelled";
+        }
+        if (error instanceof RejectedExecutionException) {
+            return "rejected";
+        }
+        int statusCode = LlmClient.statusCodeOf(error);
+        if (statusCode == 429) {
+            return "throttled";
+        }
+        if (statusCode >= 500) {
+            return "server_error";
+        }
+        if (statusCode >= 400) {
+            return "client_error";
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SocketTimeoutException) {
+                return "timeout";
+            }
+            if (cause instanceof InterruptedIOException) {
+                return "cancelled";
+            }
+        }
+        return "error";
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.service;
+
+import com.example.util.LatencyHistogram;
+import com.example.util.VirtualThreads;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 对冲请求：按阶段统计最近的调用延迟，调用超过该阶段第 percentile 分位仍未返回时发起一次重复调用，
+ * 取先返回的结果并取消另一个；对冲次数不超过总调用数的 budget-ratio，避免成倍增加调用开销
+ */
+@Service
+@Slf4j
+public class RequestHedger {
+
+    @Value("${volc.ark.hedge.enabled:false}")
+    private boolean enabled;
+    @Value("${volc.ark.hedge.percentile:0.95}")
+    private double percentile;
+    // 样本不足时延迟分布不可靠，不发起对冲
+    @Value("${volc.ark.hedge.min-samples:20}")
+    private int minSamples;
+    @Value("${volc.ark.hedge.min-delay-ms:2000}")
+    private long minDelayMs;
+    @Value("${volc.ark.hedge.budget-ratio:0.1}")
+    private double budgetRatio;
+    @Value("${volc.ark.hedge.window:256}")
+    private int window;
+    @Value("${execution.mode:platform}")
+    private String executionMode;
+
+    private final Map<String, StageStats> stages = new ConcurrentHashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        ExecutorService virtualExecutor = "virtual".equalsIgnoreCase(executionMode) ? VirtualThreads.newPerTaskExecutor() : null;
+        this.executor = virtualExecutor != null ? virtualExecutor : platformExecutor();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 执行一次阶段调用，必要时对冲；attempt 需可安全重复执行且响应中断
+     */
+    public <T> T call(String stage, Callable<T> attempt) {
+        StageStats stats = stages.computeIfAbsent(stage, s -> new StageStats(window));
+        calls.incrementAndGet();
+        long threshold = hedgeThreshold(stats);
+        if (threshold < 0) {
+            try {
+                return timed(stats, attempt);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        }
+
+        ExecutorCompletionService<T> completion = new ExecutorCompletionService<>(executor);
+        List<Future<T>> futures = new ArrayList<>(2);
+        futures.add(completion.submit(RequestTrace.wrap(() -> timed(stats, attempt))));
+        try {
+            Future<T> done = completion.poll(threshold, TimeUnit.MILLISECONDS);
+            if (done == null && tryAcquireHedge()) {
+                stats.hedges.incrementAndGet();
+                log.info("阶段 {} 调用超过 {}ms 未返回，发起对冲请求", stage, threshold);
+                futures.add(completion.submit(RequestTrace.wrap(() -> timed(stats, attempt))));
+            }
+            ExecutionException lastFailure = null;
+            for (int pending = futures.size(); pending > 0; pending--) {
+                if (done == null) {
+                    done = completion.take();
+                }
+                try {
+                    T result = done.get();
+                    if (futures.size() > 1 && done == futures.get(1)) {
+                        stats.hedgeWins.incrementAndGet();
+                    }
+                    return result;
+                } catch (ExecutionException e) {
+                    lastFailure = e;
+                    done = null;
+                }
+            }
+            Throwable cause = lastFailure.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("调用已取消");
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("calls", calls.get());
+        result.put("hedges", hedges.get());
+        Map<String, Object> stageStats = new LinkedHashMap<>();
+        stages.forEach((stage, stats) -> {
+            Map<String, Object> item = new LinkedHashMap<>(stats.latency.stats());
+            item.put("hedges", stats.hedges.get());
+            item.put("hedgeWins", stats.hedgeWins.get());
+            stageStats.put(stage, item);
+        });
+        result.put("stages", stageStats);
+        return result;
+    }
+
+    /**
+     * 对冲触发阈值（毫秒），不满足对冲条件时返回 -1
+     */
+    private long hedgeThreshold(StageStats stats) {
+        if (!enabled || stats.latency.size() < minSamples) {
+            return -1;
+        }
+        return Math.max(minDelayMs, stats.latency.percentile(percentile));
+    }
+
+    private boolean tryAcquireHedge() {
+        while (true) {
+            long issued = hedges.get();
+            if (issued + 1 > calls.get() * budgetRatio) {
+                return false;
+            }
+            if (hedges.compareAndSet(issued, issued + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 执行并记录成功调用的耗时（失败与被取消的调用不计入延迟分布）
+     */
+    private static <T> T timed(StageStats stats, Callable<T> attempt) throws Exception {
+        long start = System.nanoTime();
+        T result = attempt.call();
+        stats.latency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return result;
+    }
+
+    private static ExecutorService platformExecutor() {
+        // 对冲调用线程只在等待上游返回，数量受调用方并发与 ark 舱壁限制
+        AtomicInteger threadIndex = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "llm-hedge-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static class StageStats {
+        private final LatencyHistogram latency;
+        private final AtomicLong hedges = new AtomicLong();
+        private final AtomicLong hedgeWins = new AtomicLong();
+
+        StageStats(int window) {
+            this.latency = new LatencyHistogram(window);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.service;
+
+import com.example.model.RequestDiagnostics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 单次请求的诊断记录器
+ * 通过 ThreadLocal 关联到处理线程，提交到线程池的子任务经 wrap 传递；
+ * 记录过程只做原子累加，不分配对象，可常开
+ */
+public final class RequestTrace {
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+    private static final String[] STAGES = {"step1", "step2", "step3", "pipeline", "evaluation"};
+
+    private final String id = UUID.randomUUID().toString();
+    private final String type;
+    private final long startedAt = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+    private final RequestTrace previous;
+
+    private final AtomicLongArray stageNanos = new AtomicLongArray(STAGES.length);
+    private final AtomicReferenceArray<String> stageModels = new AtomicReferenceArray<>(STAGES.length);
+    private final AtomicLong queueWaitNanos = new AtomicLong();
+    private final AtomicLong promptTokens = new AtomicLong();
+    private final AtomicLong completionTokens = new AtomicLong();
+    private final AtomicInteger llmCalls = new AtomicInteger();
+    private final AtomicInteger failedCalls = new AtomicInteger();
+    private final AtomicInteger retries = new AtomicInteger();
+    private volatile boolean cacheHit;
+    private volatile boolean fallback;
+    private volatile long totalNanos = -1;
+
+    private RequestTrace(String type, RequestTrace previous) {
+        this.type = type;
+        this.previous = previous;
+    }
+
+    /**
+     * 开始记录并关联到当前线程
+     */
+    public static RequestTrace begin(String type) {
+        RequestTrace trace = new RequestTrace(type, CURRENT.get());
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    /**
+     * 当前线程关联的记录器，未开启时返回 null
+     */
+    public static RequestTrace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 将当前线程的记录器传递给线程池中执行的子任务
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        RequestTrace trace = CURRENT.get();
+        if (trace == null) {
+            return task;
+        }
+        return () -> {
+            RequestTrace outer = CURRENT.get();
+            CURRENT.set(trace);
+            try {
+                return task.call();
+            } finally {
+                if (outer == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(outer);
+                }
+            }
+        };
+    }
+
+    /**
+     * 结束记录，恢复当前线程之前关联的记录器
+     */
+    void end() {
+        totalNanos = System.nanoTime() - startNanos;
+        if (CURRENT.get() == this) {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public long getTotalNanos() {
+        return totalNanos >= 0 ? totalNanos : System.nanoTime() - startNanos;
+    }
+
+    void recordStage(String stage, long nanos) {
+        int index = indexOf(stage);
+        if (index >= 0) {
+            stageNanos.addAndGet(index, nanos);
+        }
+    }
+
+    void recordCall(String stage, String model, boolean failed) {
+        llmCalls.incrementAndGet();
+        if (failed) {
+            failedCalls.incrementAndGet();
+        }
+        int index = indexOf(stage);
+        if (index >= 0) {
+            stageModels.set(index, model);
+        }
+    }
+
+    void recordQueueWait(long nanos) {
+        queueWaitNanos.addAndGet(nanos);
+    }
+
+    void recordTokens(long prompt, long completion) {
+        promptTokens.addAndGet(prompt);
+        completionTokens.addAndGet(completion);
+    }
+
+    void recordRetry() {
+        retries.incrementAndGet();
+    }
+
+    void markCacheHit() {
+        cacheHit = true;
+    }
+
+    void markFallback() {
+        fallback = true;
+    }
+
+    /**
+     * 生成诊断快照（仅在需要返回或进入慢请求列表时调用）
+     */
+    public RequestDiagnostics snapshot() {
+        RequestDiagnostics diagnostics = new RequestDiagnostics();
+        diagnostics.setRequestId(id);
+        diagnostics.setType(type);
+        diagnostics.setStartedAt(startedAt);
+        diagnostics.setTotalMs(TimeUnit.NANOSECONDS.toMillis(getTotalNanos()));
+        diagnostics.setCacheHit(cacheHit);
+        diagnostics.setFallback(fallback);
+        diagnostics.setLlmCalls(llmCalls.get());
+        diagnostics.setFailedCalls(failedCalls.get());
+        diagnostics.setRetries(retries.get());
+        diagnostics.setQueueWaitMs(TimeUnit.NANOSECONDS.toMillis(queueWaitNanos.get()));
+        diagnostics.setPromptTokens(promptTokens.get());
+        diagnostics.setCompletionTokens(completionTokens.get());
+        Map<String, RequestDiagnostics.StageDiagnostics> stages = new LinkedHashMap<>();
+        for (int i = 0; i < STAGES.length; i++) {
+            long nanos = stageNanos.get(i);
+            if (nanos > 0 || stageModels.get(i) != null) {
+                stages.put(STAGES[i], new RequestDiagnostics.StageDiagnostics(
+                        TimeUnit.NANOSECONDS.toMillis(nanos), stageModels.get(i)));
+            }
+        }
+        diagnostics.setStages(stages);
+        return diagnostics;
+    }
+
+    private static int indexOf(String stage) {
+        for (int i = 0; i < STAGES.length; i++) {
+            if (STAGES[i].equals(stage)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
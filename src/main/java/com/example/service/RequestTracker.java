@@ -0,0 +1,88 @@
+package com.example.service;
+
+import com.example.model.RequestDiagnostics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 请求诊断入口：开启/结束单次请求的 RequestTrace，并保留耗时最长的 N 个请求
+ * 慢请求列表为固定大小数组，只有耗时超过列表最短者的请求才会生成快照
+ */
+@Service
+public class RequestTracker {
+
+    @Value("${diagnostics.slow-requests.capacity:50}")
+    private int capacity;
+
+    private RequestDiagnostics[] slowest;
+    private long[] slowestNanos;
+    private int size;
+    // 列表已满时的最短耗时，低于该值的请求直接跳过
+    private volatile long thresholdNanos;
+
+    @PostConstruct
+    public void init() {
+        this.slowest = new RequestDiagnostics[capacity];
+        this.slowestNanos = new long[capacity];
+    }
+
+    public RequestTrace begin(String type) {
+        return RequestTrace.begin(type);
+    }
+
+    /**
+     * 结束请求记录，必要时写入慢请求列表
+     */
+    public void finish(RequestTrace trace) {
+        trace.end();
+        long nanos = trace.getTotalNanos();
+        if (capacity <= 0 || nanos <= thresholdNanos) {
+            return;
+        }
+        RequestDiagnostics snapshot = trace.snapshot();
+        synchronized (this) {
+            if (size < capacity) {
+                slowest[size] = snapshot;
+                slowestNanos[size] = nanos;
+                size++;
+            } else {
+                int fastest = indexOfFastest();
+                if (nanos <= slowestNanos[fastest]) {
+                    return;
+                }
+                slowest[fastest] = snapshot;
+                slowestNanos[fastest] = nanos;
+            }
+            if (size == capacity) {
+                thresholdNanos = slowestNanos[indexOfFastest()];
+            }
+        }
+    }
+
+    /**
+     * 耗时最长的请求，按耗时降序
+     */
+    public synchronized List<RequestDiagnostics> slowRequests() {
+        List<RequestDiagnostics> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(slowest[i]);
+        }
+        result.sort(Comparator.comparingLong(RequestDiagnostics::getTotalMs).reversed());
+        return result;
+    }
+
+    private int indexOfFastest() {
+        int fastest = 0;
+        for (int i = 1; i < size; i++) {
+            if (slowestNanos[i] < slowestNanos[fastest]) {
+                fastest = i;
+            }
+        }
+        return fastest;
+    }
+}
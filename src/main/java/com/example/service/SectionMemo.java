@@ -0,0 +1,73 @@
+package com.example.service;
+
+import com.example.model.TestCase;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PRD 章节级阶段结果备忘录（增量生成使用）
+ * 章节内容哈希 → 阶段1 功能点 JSON；功能点 JSON 哈希 → 阶段2/3 测试用例
+ * 两级均为内存 LRU，PRD 局部修改后只有变化的章节需要重新调用大模型
+ */
+@Service
+public class SectionMemo {
+
+    private final Map<String, String> functionPoints;
+    private final Map<String, List<TestCase>> testCases;
+
+    private final AtomicLong functionPointHits = new AtomicLong();
+    private final AtomicLong functionPointMisses = new AtomicLong();
+    private final AtomicLong testCaseHits = new AtomicLong();
+    private final AtomicLong testCaseMisses = new AtomicLong();
+
+    public SectionMemo(@Value("${pipeline.incremental.max-entries:2048}") int maxEntries) {
+        this.functionPoints = lru(maxEntries);
+        this.testCases = lru(maxEntries);
+    }
+
+    public synchronized String getFunctionPoints(String sectionKey) {
+        String value = functionPoints.get(sectionKey);
+        (value == null ? functionPointMisses : functionPointHits).incrementAndGet();
+        return value;
+    }
+
+    public synchronized void putFunctionPoints(String sectionKey, String functionPointsJson) {
+        functionPoints.put(sectionKey, functionPointsJson);
+    }
+
+    public synchronized List<TestCase> getTestCases(String functionPointsKey) {
+        List<TestCase> value = testCases.get(functionPointsKey);
+        (value == null ? testCaseMisses : testCaseHits).incrementAndGet();
+        return value == null ? null : new ArrayList<>(value);
+    }
+
+    public synchronized void putTestCases(String functionPointsKey, List<TestCase> cases) {
+        testCases.put(functionPointsKey, new ArrayList<>(cases));
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("functionPointEntries", functionPoints.size());
+        stats.put("functionPointHits", functionPointHits.get());
+        stats.put("functionPointMisses", functionPointMisses.get());
+        stats.put("testCaseEntries", testCases.size());
+        stats.put("testCaseHits", testCaseHits.get());
+        stats.put("testCaseMisses", testCaseMisses.get());
+        return stats;
+    }
+
+    private static <V> Map<String, V> lru(int maxEntries) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.service;
+
+import com.example.config.LlmStageProperties;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 分阶段模型路由：为每个阶段确定模型、temperature 与 maxTokens
+ * 开启自适应路由时，按各候选模型在该阶段的延迟（指数滑动平均）与输出解析成功率选择模型
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StageModelRouter {
+
+    private static final double DEFAULT_TEMPERATURE = 0.2;
+    private static final int DEFAULT_MAX_TOKENS = 32000;
+
+    private final LlmStageProperties properties;
+    private final PipelineMetrics pipelineMetrics;
+
+    @Value("${volc.ark.model:}")
+    private String defaultModel;
+
+    // 键为 阶段|模型
+    private final Map<String, ModelStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * 确定本次阶段调用使用的模型与参数
+     */
+    public Route route(String stage) {
+        LlmStageProperties.StageOptions options = properties.getStages().get(stage);
+        String model = defaultModel;
+        double temperature = DEFAULT_TEMPERATURE;
+        int maxTokens = DEFAULT_MAX_TOKENS;
+        if (options != null) {
+            if (StringUtils.hasText(options.getModel())) model = options.getModel();
+            if (options.getTemperature() != null) temperature = options.getTemperature();
+            if (options.getMaxTokens() != null) maxTokens = options.getMaxTokens();
+            if (properties.getRouting().isAdaptive() && !options.getCandidates().isEmpty()) {
+                model = choose(stage, model, options.getCandidates());
+            }
+        }
+        return new Route(stage, model, temperature, maxTokens);
+    }
+
+    /**
+     * 记录一次调用的延迟（毫秒）
+     */
+    public void recordLatency(Route route, long millis) {
+        statsOf(route).recordLatency(millis, properties.getRouting().getLatencyAlpha());
+    }
+
+    /**
+     * 记录一次调用输出能否解析为预期结构
+     */
+    public void recordResult(Route route, boolean parsed) {
+        statsOf(route).recordResult(parsed);
+        if (!parsed) {
+            pipelineMetrics.recordParseFailure(route.getStage());
+        }
+    }
+
+    /**
+     * 记录一次调用失败（重试后仍失败，不含取消），与解析失败同样计入成功率
+     */
+    public void recordFailure(Route route) {
+        statsOf(route).recordResult(false);
+    }
+
+    /**
+     * 路由配置指纹（不含自适应选择结果），用于结果缓存键
+     */
+    public String fingerprint() {
+        StringBuilder sb = new StringBuilder(String.valueOf(defaultModel));
+        new TreeMap<>(properties.getStages()).forEach((stage, options) -> {
+            if (options == null) return;
+            sb.append('|').append(stage)
+                    .append('=').append(options.getModel())
+                    .append(',').append(options.getTemperature())
+                    .append(',').append(options.getMaxTokens())
+                    .append(',').append(options.getCandidates());
+        });
+        if (properties.getRouting().isAdaptive()) {
+            sb.append("|adaptive");
+        }
+        return sb.toString();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("adaptive", properties.getRouting().isAdaptive());
+        Map<String, Object> models = new TreeMap<>();
+        stats.forEach((key, modelStats) -> models.put(key, modelStats.snapshot()));
+        result.put("models", models);
+        return result;
+    }
+
+    /**
+     * 自适应选择：样本不足的候选优先试用；按比例随机探索；其余情况在成功率达标的候选中取平均延迟最低者
+     */
+    private String choose(String stage, String configuredModel, List<String> candidates) {
+        Set<String> models = new LinkedHashSet<>();
+        if (StringUtils.hasText(configuredModel)) {
+            models.add(configuredModel);
+        }
+        models.addAll(candidates);
+        List<String> options = new ArrayList<>(models);
+        LlmStageProperties.Routing routing = properties.getRouting();
+
+        for (String model : options) {
+            if (statsOf(stage, model).samples() < routing.getMinSamples()) {
+                return model;
+            }
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < routing.getExploreRatio()) {
+            return options.get(random.nextInt(options.size()));
+        }
+
+        String best = null;
+        double bestLatency = Double.MAX_VALUE;
+        String mostReliable = options.get(0);
+        double bestSuccessRate = -1;
+        for (String model : options) {
+            ModelStats modelStats = statsOf(stage, model);
+            double successRate = modelStats.successRate();
+            if (successRate > bestSuccessRate) {
+                bestSuccessRate = successRate;
+                mostReliable = model;
+            }
+            if (successRate >= routing.getMinSuccessRate() && modelStats.latency() < bestLatency) {
+                bestLatency = modelStats.latency();
+                best = model;
+            }
+        }
+        return best != null ? best : mostReliable;
+    }
+
+    private ModelStats statsOf(Route route) {
+        return statsOf(route.getStage(), route.getModel());
+    }
+
+    private ModelStats statsOf(String stage, String model) {
+        return stats.computeIfAbsent(stage + "|" + model, k -> new ModelStats());
+    }
+
+    /**
+     * 单次阶段调用的路由结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Route {
+        private final String stage;
+        private final String model;
+        private final double temperature;
+        private final int maxTokens;
+    }
+
+    private static class ModelStats {
+        private double latencyEwma = -1;
+        private long calls;
+        private long parsed;
+        private long failed;
+
+        synchronized void recordLatency(long millis, double alpha) {
+            calls++;
+            latencyEwma = latencyEwma < 0 ? millis : alpha * millis + (1 - alpha) * latencyEwma;
+        }
+
+        synchronized void recordResult(boolean ok) {
+            if (ok) {
+                parsed++;
+            } else {
+                failed++;
+            }
+        }
+
+        synchronized long samples() {
+            return parsed + failed;
+        }
+
+        synchronized double successRate() {
+            long total = parsed + failed;
+            return total == 0 ? 0 : (double) parsed / total;
+        }
+
+        synchronized double latency() {
+            return latencyEwma < 0 ? Double.MAX_VALUE : latencyEwma;
+        }
+
+        synchronized Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("calls", calls);
+            snapshot.put("avgLatencyMs", latencyEwma < 0 ? -1 : Math.round(latencyEwma));
+            snapshot.put("parsed", parsed);
+            snapshot.put("failed", failed);
+            snapshot.put("successRate", successRate());
+            return snapshot;
+        }
+    }
+}
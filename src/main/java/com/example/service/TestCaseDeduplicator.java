@@ -0,0 +1,141 @@
+package com.example.service;
+
+import com.example.model.TestCase;
+import com.example.util.NearDuplicateIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 测试用例近似去重与本地冗余度评分（基于 {@link NearDuplicateIndex}，不调用大模型）
+ * 用例文本为 标题 + 前置条件 + 步骤 + 预期结果，标题开头的用例编号不参与比较；
+ * 带追溯链接的用例只与同一功能点的用例比较，去重不会让某个功能点失去全部用例
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TestCaseDeduplicator {
+
+    private static final Pattern LEADING_ID = Pattern.compile("^\\s*(?:tc|case|用例)?[-_]?\\d+[\\s.、:：)）-]*", Pattern.CASE_INSENSITIVE);
+
+    private final PipelineMetrics pipelineMetrics;
+
+    // 生成结果去重开关（评测的本地冗余度评分不受影响）
+    @Value("${pipeline.dedupe.enabled:true}")
+    private boolean enabled = true;
+    // 相似度阈值：整体与标题的 3-gram Jaccard 相似度均不低于该值才视为重复
+    @Value("${pipeline.dedupe.threshold:0.8}")
+    private double threshold = 0.8;
+
+    /**
+     * 去掉近似重复的用例，保留首次出现的一条；未开启时原样返回
+     */
+    public List<TestCase> dedupe(List<TestCase> testCases) {
+        if (!enabled || testCases.size() < 2) {
+            return testCases;
+        }
+        Filter filter = newFilter();
+        List<TestCase> unique = new ArrayList<>(testCases.size());
+        for (TestCase testCase : testCases) {
+            if (filter.accept(testCase)) {
+                unique.add(testCase);
+            }
+        }
+        filter.finish();
+        return unique;
+    }
+
+    /**
+     * 逐条判断的去重过滤器，用于流式生成；未开启时全部放行
+     */
+    public Filter newFilter() {
+        return new Filter(enabled ? new NearDuplicateIndex(threshold) : null);
+    }
+
+    /**
+     * 对每条用例给出它所重复的更早用例的下标，不重复为 -1（不受开关影响）
+     */
+    public int[] duplicateOf(List<TestCase> testCases) {
+        NearDuplicateIndex index = new NearDuplicateIndex(threshold);
+        int[] duplicateOf = new int[testCases.size()];
+        for (int i = 0; i < testCases.size(); i++) {
+            duplicateOf[i] = add(index, i, testCases.get(i));
+        }
+        return duplicateOf;
+    }
+
+    /**
+     * 本地非冗余度（0-100）：去重后保留的用例占比
+     */
+    public int nonRedundancy(List<TestCase> testCases) {
+        if (testCases.isEmpty()) {
+            return 100;
+        }
+        int duplicates = 0;
+        for (int duplicate : duplicateOf(testCases)) {
+            if (duplicate >= 0) {
+                duplicates++;
+            }
+        }
+        return (int) Math.round(100.0 * (testCases.size() - duplicates) / testCases.size());
+    }
+
+    private static int add(NearDuplicateIndex index, int id, TestCase testCase) {
+        String title = testCase.getTitle() == null ? "" : LEADING_ID.matcher(testCase.getTitle()).replaceFirst("");
+        StringBuilder body = new StringBuilder(title).append('\n');
+        if (testCase.getPrecondition() != null) {
+            body.append(testCase.getPrecondition()).append('\n');
+        }
+        appendSteps(body, testCase.getSteps());
+        if (testCase.getExpectedResult() != null) {
+            body.append(testCase.getExpectedResult());
+        }
+        return index.addIfAbsent(id, testCase.getFunctionPointId(), title, body.toString());
+    }
+
+    /**
+     * steps 可能是字符串、字符串数组或对象数组，只取其中的文本值
+     */
+    private static void appendSteps(StringBuilder body, Object steps) {
+        if (steps instanceof Iterable<?> items) {
+            items.forEach(item -> appendSteps(body, item));
+        } else if (steps instanceof Map<?, ?> map) {
+            map.values().forEach(value -> appendSteps(body, value));
+        } else if (steps != null) {
+            body.append(steps).append('\n');
+        }
+    }
+
+    public class Filter {
+        private final NearDuplicateIndex index;
+        private int seen;
+
+        private Filter(NearDuplicateIndex index) {
+            this.index = index;
+        }
+
+        /**
+         * 与已放行用例近似重复时返回 false
+         */
+        public boolean accept(TestCase testCase) {
+            int id = seen++;
+            return index == null || add(index, id, testCase) < 0;
+        }
+
+        /**
+         * 记录本次去掉的重复用例数
+         */
+        public void finish() {
+            if (index != null && seen > index.size()) {
+                log.info("近似去重：{} 条用例中去掉 {} 条重复用例", seen, seen - index.size());
+                pipelineMetrics.recordDuplicatesRemoved(seen - index.size());
+            }
+        }
+    }
+}
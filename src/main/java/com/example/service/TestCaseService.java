@@ -1,36 +1,55 @@
 package com.example.service;
 
 import com.example.model.TestCase;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.example.util.HashUtils;
+import com.example.util.LlmJsonStreamParser;
+import com.example.util.PrdChunker;
+import com.example.util.PrdSectionSplitter;
+import com.example.util.TokenEstimator;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.volcengine.ark.runtime.model.completion.chat.ChatCompletionChoice;
-import com.volcengine.ark.runtime.model.completion.chat.ChatCompletionRequest;
-import com.volcengine.ark.runtime.model.completion.chat.ChatMessage;
-import com.volcengine.ark.runtime.model.completion.chat.ChatMessageRole;
-import com.volcengine.ark.runtime.service.ArkService;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StringUtils;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TestCaseService{
 
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
     private final ObjectMapper objectMapper;
     private final TestCaseServiceOld fallbackService;
+    private final LlmClient llmClient;
+    private final StageModelRouter stageModelRouter;
+    private final PipelineMetrics pipelineMetrics;
+    private final GenerationCache generationCache;
+    private final SectionMemo sectionMemo;
+    private final TestCaseDeduplicator deduplicator;
+    private final CoverageService coverageService;
+    private final ExecutorService pipelineExecutor;
 
     @Value("classpath:prompts/system-prompt-step1.txt")
     private Resource fdpPromptResource;
@@ -43,14 +62,23 @@ public class TestCaseService{
     private String tggPrompt;
     private String tvvPrompt;
 
-    @Value("${volc.ark.api-key:}")
-    private String apiKey;
-    @Value("${volc.ark.model:}")
-    private String model;
-    @Value("${volc.ark.base-url:https://ark.cn-beijing.volces.com/api/v3}")
-    private String baseUrl;
-    @Value("${volc.ark.enabled:}")
-    private boolean llmEnabled;
+    // 并行分组模式：按功能点分组，阶段2/3 各组并发执行
+    @Value("${pipeline.fanout.enabled:false}")
+    private boolean fanoutEnabled;
+    @Value("${pipeline.fanout.group-size:5}")
+    private int fanoutGroupSize;
+
+    // 增量生成：按章节备忘阶段结果，PRD 局部修改后只重新生成变化的章节
+    @Value("${pipeline.incremental.enabled:false}")
+    private boolean incrementalEnabled;
+    @Value("${pipeline.incremental.min-section-chars:200}")
+    private int minSectionChars;
+
+    // 超长 PRD 分块：阶段1 输入超出 token 预算时按结构切分后并行解析
+    @Value("${pipeline.chunking.max-tokens:24000}")
+    private int chunkMaxTokens;
+    @Value("${pipeline.chunking.overlap-tokens:500}")
+    private int chunkOverlapTokens;
 
     @PostConstruct
     public void initPrompts() {
@@ -60,93 +88,573 @@ public class TestCaseService{
     }
 
     public List<TestCase> generateTestCases(String prd) {
-        if (!llmEnabled || !isArkConfigReady()) {
+        return generateTestCases(prd, false);
+    }
+
+    /**
+     * 三阶段生成，命中结果缓存时直接返回；bypassCache 为 true 时强制重新生成并刷新缓存
+     * 规则引擎兜底结果、以及不完整的结果（阶段输出被截断、分块/分组/章节失败被丢弃）不写入缓存
+     */
+    public List<TestCase> generateTestCases(String prd, boolean bypassCache) {
+        return generateTestCases(prd, bypassCache, TestCaseStreamListener.NOOP);
+    }
+
+    /**
+     * 同上，listener 接收阶段进度；每个分组/章节完成后按最终顺序回调其中去重后保留的用例
+     * （用于边生成边评测，回调的用例序列与返回结果一致；命中缓存与兜底时不逐条回调）
+     * 执行线程被中断时抛出 CancellationException，大模型调用繁忙时抛出 LlmBusyException，均不再兜底
+     */
+    public List<TestCase> generateTestCases(String prd, boolean bypassCache, TestCaseStreamListener listener) {
+        if (!llmClient.isReady()) {
             log.warn("火山大模型未启用或配置不完整，回退旧版规则引擎");
-            return fallbackService.generateTestCases(prd);
+            listener.onStage("fallback", "使用规则引擎兜底生成");
+            return fallback(prd, "llm_unavailable");
         }
 
-        try {
-            ArkService arkService = getArkService();
+        String cacheKey = cacheKey(prd);
+        if (!bypassCache) {
+            List<TestCase> cached = generationCache.get(cacheKey);
+            if (cached != null) {
+                log.info("命中生成结果缓存，测试用例数量: {}", cached.size());
+                restoreFunctionPoints(prd, cacheKey);
+                listener.onStage("cache", "命中生成结果缓存");
+                pipelineMetrics.recordResultSize("cache", cached.size());
+                return cached;
+            }
+        }
+
+        long start = System.nanoTime();
+        AtomicBoolean complete = new AtomicBoolean(true);
+        // 各分组/章节按顺序完成即去重并回调，结果与整体生成后再去重一致
+        TestCaseDeduplicator.Filter filter = deduplicator.newFilter();
+        List<TestCase> testCases = new ArrayList<>();
+        runPipeline(prd, listener, complete, cases -> {
+            for (TestCase testCase : cases) {
+                if (filter.accept(testCase)) {
+                    testCases.add(testCase);
+                    listener.onTestCase(testCase);
+                }
+            }
+        });
+        filter.finish();
+        boolean success = !testCases.isEmpty();
+        pipelineMetrics.recordStage("pipeline", start, success);
+        if (!success) {
+            listener.onStage("fallback", "使用规则引擎兜底生成");
+            return fallback(prd, "pipeline_failed");
+        }
+        pipelineMetrics.recordResultSize("llm", testCases.size());
+        if (complete.get()) {
+            generationCache.put(cacheKey, testCases, coverageService.functionPoints(prd));
+        } else {
+            log.warn("生成结果不完整，不写入缓存，测试用例数量: {}", testCases.size());
+        }
+        return testCases;
+    }
 
+    /**
+     * 执行三阶段流水线，产出的用例按最终顺序分批交给 sink；任一阶段失败时不产出，结果只是部分完成时将 complete 置为 false
+     */
+    private void runPipeline(String prd, TestCaseStreamListener listener, AtomicBoolean complete, Consumer<List<TestCase>> sink) {
+        if (incrementalEnabled) {
+            listener.onStage("incremental", "按章节增量生成");
+            generateIncrementally(prd, complete, sink);
+            return;
+        }
+        try {
             // 阶段1：功能点解析
             log.info("调用火山大模型进行功能点解析");
-            String fdpResponse = callLlm(prd, fdpPrompt, arkService);
-            if (fdpResponse == null) return fallbackService.generateTestCases(prd);
-            List<Map<String, Object>> functionPoints = objectMapper.readValue(
-                    fdpResponse, new TypeReference<List<Map<String, Object>>>(){}
-            );
+            listener.onStage("step1", "功能点解析");
+            List<Map<String, Object>> functionPoints = extractFunctionPoints(prd, true, complete);
+            if (functionPoints == null) return;
             log.info("提取功能点数量: {}", functionPoints.size());
+            if (functionPoints.isEmpty()) return;
+            coverageService.record(prd, functionPoints);
 
-            // 阶段2：场景覆盖规划
-            log.info("调用火山大模型进行场景规划");
-            String tggResponse = callLlm(fdpResponse, tggPrompt, arkService);
-            if (tggResponse == null) return fallbackService.generateTestCases(prd);
-
-            // 阶段3：测试用例生成
-            log.info("调用火山大模型进行测试用例生成");
-            String tvvResponse = callLlm(tggResponse, tvvPrompt, arkService);
-            if (tvvResponse == null) return fallbackService.generateTestCases(prd);
-
-            // 解析最终 JSON 为 TestCase 列表
-            log.info("开始解析测试用例");
-            List<TestCase> testCases = parseLlmResponse(tvvResponse);
-            return (testCases != null && !testCases.isEmpty()) ? testCases : fallbackService.generateTestCases(prd);
+            listener.onStage("step2", "场景规划与测试用例生成，功能点数量: " + functionPoints.size());
+            if (fanoutEnabled && functionPoints.size() > fanoutGroupSize) {
+                generateByFanout(functionPoints, complete, sink);
+            } else {
+                List<TestCase> testCases = generateFromFunctionPoints(objectMapper.writeValueAsString(functionPoints), complete);
+                if (testCases != null) {
+                    sink.accept(testCases);
+                }
+            }
 
         } catch (Exception e) {
+            rethrowIfAborted(e);
             log.error("三阶段生成失败，使用规则引擎兜底", e);
-            return fallbackService.generateTestCases(prd);
         }
     }
 
-    private String callLlm(String content, String systemPrompt, ArkService arkService) {
+    /**
+     * 增量生成：PRD 按章节切分后各章节并发执行三阶段，阶段结果按内容哈希备忘
+     * 章节内部不再分组并发，避免同一线程池内嵌套等待
+     * 各章节的功能点均从 F1 编号，多个章节时追溯 id 加章节前缀（如 P2-F3、P2-F3-S1）区分
+     * 章节按顺序完成即把用例交给 sink，不等待后面的章节
+     */
+    private void generateIncrementally(String prd, AtomicBoolean complete, Consumer<List<TestCase>> sink) {
+        List<String> sections = PrdSectionSplitter.split(prd, minSectionChars);
+        log.info("增量生成，章节数量: {}", sections.size());
+
+        List<Future<SectionResult>> futures = new ArrayList<>(sections.size());
+        for (int i = 0; i < sections.size(); i++) {
+            int sectionIndex = i;
+            String section = sections.get(i);
+            String prefix = sections.size() > 1 ? "P" + (i + 1) + "-" : "";
+            futures.add(pipelineExecutor.submit(RequestTrace.wrap(() -> {
+                try {
+                    SectionResult result = generateSection(section, complete);
+                    if (result == null) {
+                        complete.set(false);
+                        return SectionResult.EMPTY;
+                    }
+                    return result.withIdPrefix(prefix);
+                } catch (Exception e) {
+                    rethrowIfAborted(e);
+                    log.error("章节[{}]生成失败，丢弃该章节结果", sectionIndex, e);
+                    complete.set(false);
+                    return SectionResult.EMPTY;
+                }
+            })));
+        }
+
+        List<Map<String, Object>> functionPoints = new ArrayList<>();
+        List<TestCase> merged = new ArrayList<>();
+        awaitEach(futures, result -> {
+            functionPoints.addAll(result.functionPoints());
+            merged.addAll(result.testCases());
+            sink.accept(result.testCases());
+        });
+        if (!functionPoints.isEmpty()) {
+            coverageService.record(prd, functionPoints);
+        }
+        log.info("增量生成完成，测试用例数量: {}，备忘统计: {}", merged.size(), sectionMemo.stats());
+    }
+
+    /**
+     * 单个章节的三阶段生成，优先复用备忘的功能点与测试用例
+     * 阶段1 失败返回 null；阶段2/3 失败时仍返回功能点（计入覆盖率报告的未覆盖项）
+     * 不完整的阶段结果不做备忘，并将 complete 置为 false
+     */
+    private SectionResult generateSection(String section, AtomicBoolean complete) throws Exception {
+        String model = stageModelRouter.fingerprint();
+        String sectionKey = HashUtils.sha256(section, model, fdpPrompt);
+        String functionPointsJson = sectionMemo.getFunctionPoints(sectionKey);
+        List<Map<String, Object>> functionPoints;
+        if (functionPointsJson == null) {
+            AtomicBoolean step1Complete = new AtomicBoolean(true);
+            functionPoints = extractFunctionPoints(section, false, step1Complete);
+            if (functionPoints == null) return null;
+            if (!step1Complete.get()) complete.set(false);
+            // 无可测试功能点的章节（如背景介绍）或解析失败，不做备忘
+            if (functionPoints.isEmpty()) return SectionResult.EMPTY;
+            functionPointsJson = objectMapper.writeValueAsString(functionPoints);
+            if (step1Complete.get()) {
+                sectionMemo.putFunctionPoints(sectionKey, functionPointsJson);
+            }
+        } else {
+            functionPoints = parseFunctionPoints(functionPointsJson);
+        }
+
+        String casesKey = HashUtils.sha256(functionPointsJson, model, tggPrompt, tvvPrompt);
+        List<TestCase> cached = sectionMemo.getTestCases(casesKey);
+        if (cached != null) return new SectionResult(functionPoints, cached);
+
+        AtomicBoolean casesComplete = new AtomicBoolean(true);
+        List<TestCase> cases = generateFromFunctionPoints(functionPointsJson, casesComplete);
+        if (casesComplete.get()) {
+            sectionMemo.putTestCases(casesKey, cases);
+        } else {
+            complete.set(false);
+        }
+        return new SectionResult(functionPoints, cases != null ? cases : List.of());
+    }
+
+    private record SectionResult(List<Map<String, Object>> functionPoints, List<TestCase> testCases) {
+
+        static final SectionResult EMPTY = new SectionResult(List.of(), List.of());
+
+        /**
+         * 复制一份并给功能点与用例的追溯 id 加前缀，不修改备忘中的对象
+         */
+        SectionResult withIdPrefix(String prefix) {
+            if (prefix.isEmpty()) {
+                return this;
+            }
+            List<Map<String, Object>> points = new ArrayList<>(functionPoints.size());
+            for (Map<String, Object> functionPoint : functionPoints) {
+                Map<String, Object> copy = new LinkedHashMap<>(functionPoint);
+                copy.put("id", prefix + functionPoint.get("id"));
+                points.add(copy);
+            }
+            List<TestCase> cases = new ArrayList<>(testCases.size());
+            for (TestCase testCase : testCases) {
+                cases.add(new TestCase(testCase.getTitle(), testCase.getPrecondition(), testCase.getSteps(),
+                        testCase.getExpectedResult(),
+                        testCase.getFunctionPointId() == null ? null : prefix + testCase.getFunctionPointId(),
+                        testCase.getScenarioId() == null ? null : prefix + testCase.getScenarioId()));
+            }
+            return new SectionResult(points, cases);
+        }
+    }
+
+    /**
+     * 流式生成：阶段1/2 完成后推送进度，阶段3 每生成完一条测试用例立即回调（与已推送用例近似重复的不推送）
+     * 阶段3 已产出部分用例时中途失败，直接返回已产出部分，不再兜底
+     */
+    public List<TestCase> generateTestCasesStream(String prd, boolean bypassCache, TestCaseStreamListener listener) {
+        if (!llmClient.isReady()) {
+            log.warn("火山大模型未启用或配置不完整，回退旧版规则引擎");
+            return emitFallback(prd, listener, "llm_unavailable");
+        }
+
+        String cacheKey = cacheKey(prd);
+        if (!bypassCache) {
+            List<TestCase> cached = generationCache.get(cacheKey);
+            if (cached != null) {
+                restoreFunctionPoints(prd, cacheKey);
+                listener.onStage("cache", "命中生成结果缓存");
+                pipelineMetrics.recordResultSize("cache", cached.size());
+                cached.forEach(listener::onTestCase);
+                return cached;
+            }
+        }
+
+        List<TestCase> testCases = new ArrayList<>();
+        AtomicBoolean complete = new AtomicBoolean(true);
+        boolean completed = false;
+        long start = System.nanoTime();
         try {
-            List<ChatMessage> messages = new ArrayList<>();
-            messages.add(ChatMessage.builder().role(ChatMessageRole.SYSTEM).content(systemPrompt).build());
-            messages.add(ChatMessage.builder().role(ChatMessageRole.USER).content(content).build());
-            // 构建 thinking 对象
-            ChatCompletionRequest.ChatCompletionRequestThinking thinking =
-                    new ChatCompletionRequest.ChatCompletionRequestThinking("disabled");
-
-            ChatCompletionRequest request = ChatCompletionRequest.builder()
-                    .model(model)
-                    .messages(messages)
-                    .temperature(0.2)
-                    .maxTokens(32000)
-                    .thinking(thinking)
-                    .build();
-
-            List<ChatCompletionChoice> choices = arkService.createChatCompletion(request).getChoices();
-//            if (choices != null && !choices.isEmpty()) {
-//                return Objects.requireNonNullElse(choices.get(0).getMessage().getContent(), "").trim();
-//            }
-            if (choices != null && !choices.isEmpty()) {
-                return String.valueOf(choices.get(0).getMessage().getContent()).trim();
+            // 阶段1：功能点解析
+            listener.onStage("step1", "功能点解析");
+            List<Map<String, Object>> functionPoints = extractFunctionPoints(prd, true, complete);
+            if (functionPoints == null || functionPoints.isEmpty()) return emitFallback(prd, listener, "pipeline_failed");
+            coverageService.record(prd, functionPoints);
+
+            // 阶段2：场景覆盖规划
+            listener.onStage("step2", "场景规划，功能点数量: " + functionPoints.size());
+            StageModelRouter.Route planRoute = stageModelRouter.route("step2");
+            String tggResponse = planScenarios(planRoute, objectMapper.writeValueAsString(functionPoints));
+            if (tggResponse == null) return emitFallback(prd, listener, "pipeline_failed");
+
+            // 阶段3：流式生成测试用例，每闭合一个 JSON 对象即解析推送
+            listener.onStage("step3", "测试用例生成");
+            StageModelRouter.Route route = stageModelRouter.route("step3");
+            long step3Start = System.nanoTime();
+            LlmJsonStreamParser<TestCase> streamParser = new LlmJsonStreamParser<>(objectMapper, TestCase.class);
+            TestCaseDeduplicator.Filter filter = deduplicator.newFilter();
+            llmClient.chatStream(route, tvvPrompt, tggResponse, delta -> {
+                for (TestCase testCase : streamParser.feed(delta)) {
+                    CoverageService.link(testCase);
+                    if (filter.accept(testCase)) {
+                        testCases.add(testCase);
+                        listener.onTestCase(testCase);
+                    }
+                }
+            });
+            for (TestCase testCase : streamParser.finish()) {
+                CoverageService.link(testCase);
+                if (filter.accept(testCase)) {
+                    testCases.add(testCase);
+                    listener.onTestCase(testCase);
+                }
+            }
+            filter.finish();
+            // 输出被截断时已推送的用例保留，但阶段视为未完成
+            boolean step3Completed = !streamParser.isTruncated() && !testCases.isEmpty();
+            stageModelRouter.recordResult(route, step3Completed);
+            pipelineMetrics.recordStage("step3", step3Start, step3Completed);
+            completed = !streamParser.isTruncated();
+        } catch (Exception e) {
+            rethrowIfAborted(e);
+            log.error("流式三阶段生成失败，已产出测试用例数量: {}", testCases.size(), e);
+        }
+        pipelineMetrics.recordStage("pipeline", start, completed && !testCases.isEmpty());
+        if (testCases.isEmpty()) {
+            return emitFallback(prd, listener, "pipeline_failed");
+        }
+        pipelineMetrics.recordResultSize("llm", testCases.size());
+        // 中途失败或不完整（阶段1 分块失败、阶段3 输出被截断）的部分结果不写入缓存
+        if (completed && complete.get()) {
+            generationCache.put(cacheKey, testCases, coverageService.functionPoints(prd));
+        } else {
+            log.warn("流式生成结果不完整，不写入缓存，测试用例数量: {}", testCases.size());
+        }
+        return testCases;
+    }
+
+    /**
+     * 命中生成结果缓存时，把缓存记录中的阶段1 功能点重新登记到覆盖率服务（重启后内存中的功能点已丢失）
+     */
+    private void restoreFunctionPoints(String prd, String cacheKey) {
+        List<Map<String, Object>> functionPoints = generationCache.functionPoints(cacheKey);
+        if (functionPoints != null && !functionPoints.isEmpty()) {
+            coverageService.record(prd, functionPoints);
+        }
+    }
+
+    /**
+     * 缓存键：PRD 内容 + 分阶段模型配置 + 三阶段提示词内容
+     */
+    private String cacheKey(String prd) {
+        return generationCache.key(prd, stageModelRouter.fingerprint(), fdpPrompt, tggPrompt, tvvPrompt);
+    }
+
+    private List<TestCase> emitFallback(String prd, TestCaseStreamListener listener, String reason) {
+        listener.onStage("fallback", "使用规则引擎兜底生成");
+        List<TestCase> testCases = fallback(prd, reason);
+        testCases.forEach(listener::onTestCase);
+        return testCases;
+    }
+
+    private List<TestCase> fallback(String prd, String reason) {
+        pipelineMetrics.recordFallback(reason);
+        List<TestCase> testCases = fallbackService.generateTestCases(prd);
+        pipelineMetrics.recordResultSize("fallback", testCases.size());
+        return testCases;
+    }
+
+    /**
+     * 阶段1：功能点解析。PRD 超出 token 预算时先按结构切分，各分块分别解析后合并去重并重新编号
+     * parallel 为 false 时分块串行执行（调用方已在流水线线程池中时使用），全部分块失败返回 null
+     * 部分分块失败或输出被截断时将 complete 置为 false
+     */
+    private List<Map<String, Object>> extractFunctionPoints(String prd, boolean parallel, AtomicBoolean complete) {
+        long start = System.nanoTime();
+        List<Map<String, Object>> functionPoints = doExtractFunctionPoints(prd, parallel, complete);
+        pipelineMetrics.recordStage("step1", start, functionPoints != null && !functionPoints.isEmpty());
+        return functionPoints;
+    }
+
+    private List<Map<String, Object>> doExtractFunctionPoints(String prd, boolean parallel, AtomicBoolean complete) {
+        int estimatedTokens = TokenEstimator.estimate(prd);
+        if (estimatedTokens <= chunkMaxTokens) {
+            return extractChunkFunctionPoints(prd, complete);
+        }
+
+        List<String> chunks = PrdChunker.chunk(prd, chunkMaxTokens, chunkOverlapTokens);
+        log.info("PRD 预估 {} tokens，超出预算 {}，切分为 {} 块解析功能点", estimatedTokens, chunkMaxTokens, chunks.size());
+        List<List<Map<String, Object>>> results = new ArrayList<>(chunks.size());
+        if (parallel) {
+            List<Future<List<Map<String, Object>>>> futures = new ArrayList<>(chunks.size());
+            for (String chunk : chunks) {
+                futures.add(pipelineExecutor.submit(RequestTrace.wrap(() -> extractChunkFunctionPoints(chunk, complete))));
             }
+            results.addAll(awaitAll(futures));
+        } else {
+            chunks.forEach(chunk -> results.add(extractChunkFunctionPoints(chunk, complete)));
+        }
+        if (results.stream().allMatch(Objects::isNull)) {
+            return null;
+        }
+        return mergeFunctionPoints(results);
+    }
+
+    private List<Map<String, Object>> extractChunkFunctionPoints(String chunk, AtomicBoolean complete) {
+        StageModelRouter.Route route = stageModelRouter.route("step1");
+        String fdpResponse = callLlm(route, chunk, fdpPrompt);
+        if (fdpResponse == null) {
+            complete.set(false);
+            return null;
+        }
+        LlmJsonStreamParser.Parsed<Map<String, Object>> parsed = parseFunctionPointsResponse(fdpResponse);
+        if (parsed.truncated()) {
+            complete.set(false);
+        }
+        stageModelRouter.recordResult(route, !parsed.truncated() && !parsed.values().isEmpty());
+        return parsed.values();
+    }
+
+    /**
+     * 合并各分块功能点：按名称+描述（去空白、忽略大小写）去重，保持首次出现顺序，id 重新从 F1 编号
+     */
+    private List<Map<String, Object>> mergeFunctionPoints(List<List<Map<String, Object>>> results) {
+        Set<String> seen = new HashSet<>();
+        List<Map<String, Object>> merged = new ArrayList<>();
+        for (List<Map<String, Object>> functionPoints : results) {
+            if (functionPoints == null) continue;
+            for (Map<String, Object> functionPoint : functionPoints) {
+                String dedupeKey = normalize(functionPoint.get("name")) + "|" + normalize(functionPoint.get("description"));
+                if (!seen.add(dedupeKey)) continue;
+                Map<String, Object> renumbered = new LinkedHashMap<>(functionPoint);
+                renumbered.put("id", "F" + (merged.size() + 1));
+                merged.add(renumbered);
+            }
+        }
+        log.info("分块功能点合并去重后数量: {}", merged.size());
+        return merged;
+    }
+
+    private static String normalize(Object value) {
+        return value == null ? "" : WHITESPACE.matcher(String.valueOf(value)).replaceAll("").toLowerCase();
+    }
+
+    /**
+     * 阶段2 + 阶段3：基于功能点 JSON 规划场景并生成测试用例，任一阶段失败返回 null
+     * 失败、阶段3 输出被截断或未产出用例时将 complete 置为 false
+     */
+    private List<TestCase> generateFromFunctionPoints(String functionPointsJson, AtomicBoolean complete) {
+        // 阶段2：场景覆盖规划
+        log.info("调用火山大模型进行场景规划");
+        StageModelRouter.Route planRoute = stageModelRouter.route("step2");
+        String tggResponse = planScenarios(planRoute, functionPointsJson);
+        if (tggResponse == null) {
+            complete.set(false);
+            return null;
+        }
 
+        // 阶段3：测试用例生成
+        log.info("调用火山大模型进行测试用例生成");
+        StageModelRouter.Route route = stageModelRouter.route("step3");
+        long start = System.nanoTime();
+        String tvvResponse = callLlm(route, tggResponse, tvvPrompt);
+        if (tvvResponse == null) {
+            pipelineMetrics.recordStage("step3", start, false);
+            complete.set(false);
+            return null;
+        }
+
+        // 解析最终 JSON 为 TestCase 列表，输出被截断时保留已解析部分，但阶段视为未完成
+        log.info("开始解析测试用例");
+        LlmJsonStreamParser.Parsed<TestCase> parsed = parseLlmResponse(tvvResponse);
+        List<TestCase> testCases = parsed.values();
+        CoverageService.link(testCases);
+        boolean completed = !parsed.truncated() && !testCases.isEmpty();
+        stageModelRouter.recordResult(route, completed);
+        pipelineMetrics.recordStage("step3", start, completed);
+        if (!completed) {
+            complete.set(false);
+        }
+        return testCases;
+    }
+
+    /**
+     * 阶段2：场景覆盖规划，输出原样交给阶段3；规划能否解析为完整的场景数组单独计入阶段2 的路由统计
+     */
+    @SuppressWarnings("rawtypes")
+    private String planScenarios(StageModelRouter.Route route, String functionPointsJson) {
+        long start = System.nanoTime();
+        String tggResponse = callLlm(route, functionPointsJson, tggPrompt);
+        pipelineMetrics.recordStage("step2", start, tggResponse != null);
+        if (tggResponse != null) {
+            LlmJsonStreamParser.Parsed<Map> parsed = LlmJsonStreamParser.parse(objectMapper, tggResponse, Map.class);
+            stageModelRouter.recordResult(route, !parsed.truncated() && !parsed.values().isEmpty());
+        }
+        return tggResponse;
+    }
+
+    /**
+     * 并行分组模式：功能点按组拆分后并发执行阶段2/3，按分组顺序把各组结果交给 sink（前面的组完成即交出，不等待全部分组）
+     * 单组失败只丢弃该组结果（并将 complete 置为 false），全部失败时不产出用例由调用方兜底
+     */
+    private void generateByFanout(List<Map<String, Object>> functionPoints, AtomicBoolean complete, Consumer<List<TestCase>> sink) {
+        List<List<Map<String, Object>>> groups = new ArrayList<>();
+        for (int i = 0; i < functionPoints.size(); i += fanoutGroupSize) {
+            groups.add(functionPoints.subList(i, Math.min(i + fanoutGroupSize, functionPoints.size())));
+        }
+        log.info("并行分组生成，功能点数量: {}, 分组数量: {}", functionPoints.size(), groups.size());
+
+        List<Future<List<TestCase>>> futures = new ArrayList<>(groups.size());
+        for (int i = 0; i < groups.size(); i++) {
+            int groupIndex = i;
+            List<Map<String, Object>> group = groups.get(i);
+            futures.add(pipelineExecutor.submit(RequestTrace.wrap(() -> {
+                try {
+                    List<TestCase> cases = generateFromFunctionPoints(objectMapper.writeValueAsString(group), complete);
+                    return cases != null ? cases : List.<TestCase>of();
+                } catch (Exception e) {
+                    rethrowIfAborted(e);
+                    log.error("分组[{}]生成失败，丢弃该组结果", groupIndex, e);
+                    complete.set(false);
+                    return List.<TestCase>of();
+                }
+            })));
+        }
+
+        awaitEach(futures, sink);
+    }
+
+    private String callLlm(StageModelRouter.Route route, String content, String systemPrompt) {
+        try {
+            return llmClient.chat(route, systemPrompt, content);
         } catch (Exception e) {
+            rethrowIfAborted(e);
             log.error("调用大模型失败", e);
         }
         return null;
     }
 
-    private List<TestCase> parseLlmResponse(String llmResponse) throws Exception {
-        if (llmResponse == null || llmResponse.isEmpty()) return null;
-        llmResponse = llmResponse.replaceAll("^```json|```$", "")
-                .replaceAll("^\"|\"$", "")
-                .replaceAll("//.*", "")
-                .trim();
-        return objectMapper.readValue(llmResponse, new TypeReference<List<TestCase>>() {});
+    /**
+     * 按提交顺序等待并发子任务；当前线程被中断时取消全部子任务（中断其中正在进行的大模型调用）
+     */
+    private <T> List<T> awaitAll(List<Future<T>> futures) {
+        List<T> results = new ArrayList<>(futures.size());
+        awaitEach(futures, results::add);
+        return results;
+    }
+
+    /**
+     * 按提交顺序等待并发子任务，每个子任务完成即交给 action；action 抛出异常或当前线程被中断时取消剩余子任务
+     */
+    private <T> void awaitEach(List<Future<T>> futures, Consumer<T> action) {
+        try {
+            for (Future<T> future : futures) {
+                action.accept(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new CancellationException("生成任务已取消");
+        } catch (ExecutionException e) {
+            // 子任务内部已处理普通异常，此处仅会是取消
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (RuntimeException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        }
+    }
+
+    /**
+     * 当前任务已被取消（线程中断或异常由中断引起）时抛出 CancellationException；
+     * 大模型调用繁忙（限流排队超时）时原样抛出 LlmBusyException，由调用方提示稍后重试，避免继续兜底生成
+     */
+    private static void rethrowIfAborted(Exception e) {
+        if (e instanceof CancellationException cancellationException) {
+            throw cancellationException;
+        }
+        if (e instanceof LlmBusyException busyException) {
+            throw busyException;
+        }
+        boolean interrupted = Thread.currentThread().isInterrupted();
+        for (Throwable cause = e; cause != null && !interrupted; cause = cause.getCause()) {
+            interrupted = cause instanceof InterruptedException || cause instanceof InterruptedIOException;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("生成任务已取消");
+        }
+    }
+
+    private LlmJsonStreamParser.Parsed<TestCase> parseLlmResponse(String llmResponse) {
+        return LlmJsonStreamParser.parse(objectMapper, llmResponse, TestCase.class);
     }
 
-    private boolean isArkConfigReady() {
-        return StringUtils.hasText(apiKey) && StringUtils.hasText(model);
+    /**
+     * 解析阶段1输出的功能点列表，无法解析时返回空列表
+     */
+    private List<Map<String, Object>> parseFunctionPoints(String fdpResponse) {
+        return parseFunctionPointsResponse(fdpResponse).values();
     }
 
-    private ArkService getArkService() {
-        return ArkService.builder()
-                .apiKey(apiKey)
-                .baseUrl(baseUrl)
-                .build();
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private LlmJsonStreamParser.Parsed<Map<String, Object>> parseFunctionPointsResponse(String fdpResponse) {
+        LlmJsonStreamParser.Parsed parsed = LlmJsonStreamParser.parse(objectMapper, fdpResponse, Map.class);
+        return (LlmJsonStreamParser.Parsed<Map<String, Object>>) parsed;
     }
 
     private String loadPrompt(Resource resource) {
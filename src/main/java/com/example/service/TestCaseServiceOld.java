@@ -3,6 +3,7 @@ package com.example.service;
 import com.example.model.TestCase;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -15,6 +16,24 @@ import java.util.regex.Pattern;
 @Slf4j
 public class TestCaseServiceOld {
 
+    // 步骤描述：“步骤/操作”后到句号、分号或换行为止
+    private static final Pattern STEP_PATTERN = Pattern.compile("(?:步骤|操作)[：:]?\\s*([^。；\\n]+)", Pattern.CASE_INSENSITIVE);
+
+    // 提取的功能点上限
+    @Value("${pipeline.fallback.max-features:10}")
+    private int maxFeatures = 10;
+
+    // 无功能标记时按段落提取，段落长度区间（不含端点）
+    @Value("${pipeline.fallback.min-paragraph-chars:20}")
+    private int minParagraphChars = 20;
+
+    @Value("${pipeline.fallback.max-paragraph-chars:500}")
+    private int maxParagraphChars = 500;
+
+    // 单个功能点保留的最大字符数，超长的单行描述截断
+    @Value("${pipeline.fallback.max-feature-chars:1000}")
+    private int maxFeatureChars = 1000;
+
     /**
      * 根据PRD内容生成测试用例
      * 这里使用规则引擎生成测试用例，实际项目中可以集成OpenAI、Claude等LLM API
@@ -44,37 +63,88 @@ public class TestCaseServiceOld {
 
     /**
      * 从PRD中提取功能点
+     * 单遍线性扫描：识别“功能/需求/特性/模块 + 冒号”开头、到行尾或下一个标记为止的功能描述；
+     * 全文没有标记时按空行分段，取长度在区间内的段落。只对入选的片段分配字符串，达到上限即提前结束
      */
-    private List<String> extractFeatures(String prd) {
+    List<String> extractFeatures(String prd) {
         List<String> features = new ArrayList<>();
-        
-        // 使用正则表达式提取功能点
-        // 匹配常见的功能描述模式
-        Pattern pattern = Pattern.compile(
-            "(?:功能|需求|特性|模块)[：:](.*?)(?=\\n|$|(?:功能|需求|特性|模块)[：:])",
-            Pattern.CASE_INSENSITIVE | Pattern.MULTILINE
-        );
-        
-        Matcher matcher = pattern.matcher(prd);
-        while (matcher.find()) {
-            String feature = matcher.group(1).trim();
-            if (!feature.isEmpty() && feature.length() > 5) {
-                features.add(feature);
+        List<String> paragraphs = new ArrayList<>();
+        int n = prd.length();
+        int featureStart = -1;
+        int paragraphStart = 0;
+
+        for (int i = 0; i < n; i++) {
+            char c = prd.charAt(i);
+            boolean marker = isFeatureMarker(prd, i);
+            if (featureStart >= 0 && (marker || isLineTerminator(c))) {
+                addTrimmed(features, prd, featureStart, i, 5, Integer.MAX_VALUE);
+                featureStart = -1;
+                if (features.size() >= maxFeatures) {
+                    return features;
+                }
             }
-        }
-        
-        // 如果没有匹配到，尝试按段落分割
-        if (features.isEmpty()) {
-            String[] paragraphs = prd.split("\n\n");
-            for (String para : paragraphs) {
-                para = para.trim();
-                if (para.length() > 20 && para.length() < 500) {
-                    features.add(para);
+            if (marker) {
+                featureStart = i + 3;
+                i += 2;
+                continue;
+            }
+            // 全文尚无标记功能点时顺带按空行切分段落，备用
+            if (features.isEmpty() && c == '\n' && i >= paragraphStart && i + 1 < n && prd.charAt(i + 1) == '\n') {
+                if (paragraphs.size() < maxFeatures) {
+                    addTrimmed(paragraphs, prd, paragraphStart, i, minParagraphChars, maxParagraphChars);
                 }
+                paragraphStart = i + 2;
             }
         }
-        
-        return features.size() > 10 ? features.subList(0, 10) : features;
+        if (featureStart >= 0) {
+            addTrimmed(features, prd, featureStart, n, 5, Integer.MAX_VALUE);
+        }
+        if (!features.isEmpty()) {
+            return features;
+        }
+
+        // 如果没有匹配到，使用按段落分割的结果
+        if (paragraphs.size() < maxFeatures) {
+            addTrimmed(paragraphs, prd, paragraphStart, n, minParagraphChars, maxParagraphChars);
+        }
+        return paragraphs;
+    }
+
+    /**
+     * 位置 i 处是否为“功能：/需求：/特性：/模块：”（全角或半角冒号）
+     */
+    private static boolean isFeatureMarker(String text, int i) {
+        if (i + 2 >= text.length()) {
+            return false;
+        }
+        char colon = text.charAt(i + 2);
+        if (colon != '：' && colon != ':') {
+            return false;
+        }
+        char first = text.charAt(i);
+        char second = text.charAt(i + 1);
+        return (first == '功' && second == '能') || (first == '需' && second == '求')
+                || (first == '特' && second == '性') || (first == '模' && second == '块');
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * 去掉首尾空白后长度在 (minChars, maxChars) 之间时加入列表，超过 maxFeatureChars 的部分截断
+     */
+    private void addTrimmed(List<String> target, String text, int start, int end, int minChars, int maxChars) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int length = end - start;
+        if (length > minChars && length < maxChars) {
+            target.add(text.substring(start, length > maxFeatureChars ? start + maxFeatureChars : end));
+        }
     }
 
     /**
@@ -145,8 +215,7 @@ public class TestCaseServiceOld {
         }
         
         // 如果feature中包含具体的步骤描述，可以解析出来
-        Pattern stepPattern = Pattern.compile("(?:步骤|操作)[：:]?\\s*([^。；\\n]+)", Pattern.CASE_INSENSITIVE);
-        Matcher stepMatcher = stepPattern.matcher(feature);
+        Matcher stepMatcher = STEP_PATTERN.matcher(feature);
         int stepIndex = 0;
         while (stepMatcher.find() && stepIndex < 3) {
             String step = stepMatcher.group(1).trim();
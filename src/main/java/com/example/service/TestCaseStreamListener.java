@@ -0,0 +1,23 @@
+package com.example.service;
+
+import com.example.model.TestCase;
+
+/**
+ * 流式生成回调：阶段进度与单条测试用例产出
+ */
+public interface TestCaseStreamListener {
+
+    TestCaseStreamListener NOOP = new TestCaseStreamListener() {
+        @Override
+        public void onStage(String stage, String message) {
+        }
+
+        @Override
+        public void onTestCase(TestCase testCase) {
+        }
+    };
+
+    void onStage(String stage, String message);
+
+    void onTestCase(TestCase testCase);
+}
@@ -0,0 +1,73 @@
+package com.example.util;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 滑动窗口延迟分布：保留最近 window 个样本（毫秒），按需计算分位数
+ * 线程安全；窗口较小（数百个样本），分位数计算时复制排序的开销可忽略
+ */
+public class LatencyHistogram {
+
+    private final long[] samples;
+    private int next;
+    private int size;
+    private long total;
+
+    public LatencyHistogram(int window) {
+        this.samples = new long[Math.max(1, window)];
+    }
+
+    public synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) {
+            size++;
+        }
+        total++;
+    }
+
+    /**
+     * 当前窗口内的样本数
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 窗口内第 p 分位（0~1）的延迟，无样本时返回 -1
+     */
+    public long percentile(double p) {
+        long[] sorted = sortedSnapshot();
+        return percentile(sorted, p);
+    }
+
+    public Map<String, Object> stats() {
+        long[] sorted = sortedSnapshot();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("total", total);
+        }
+        stats.put("window", sorted.length);
+        stats.put("p50", percentile(sorted, 0.5));
+        stats.put("p90", percentile(sorted, 0.9));
+        stats.put("p99", percentile(sorted, 0.99));
+        stats.put("max", sorted.length == 0 ? -1 : sorted[sorted.length - 1]);
+        return stats;
+    }
+
+    private synchronized long[] sortedSnapshot() {
+        long[] copy = Arrays.copyOf(samples, size);
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return -1;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
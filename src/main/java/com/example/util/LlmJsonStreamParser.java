@@ -0,0 +1,245 @@
+package com.example.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 大模型输出的增量 JSON 解析器（基于 Jackson 非阻塞解析器）
+ * 1. 自动跳过根节点之前的内容（如 ```json 代码块标记、前导引号），根节点闭合后忽略剩余内容
+ * 2. 支持 Java 风格行注释/块注释与尾随逗号，字符串中的 URL 等内容不受影响
+ * 3. 根节点为数组时逐个产出元素，为对象时产出对象本身；元素通过 TokenBuffer 直接绑定为目标类型
+ * 4. 输出被截断或中途格式错误时，保留已完整解析的元素，并通过 isTruncated() 告知调用方结果不完整
+ * 非线程安全，每次解析创建新实例
+ */
+@Slf4j
+public class LlmJsonStreamParser<T> {
+
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .enable(JsonReadFeature.ALLOW_JAVA_COMMENTS)
+            .enable(JsonReadFeature.ALLOW_TRAILING_COMMA)
+            .build();
+
+    private final ObjectMapper objectMapper;
+    private final Class<T> valueType;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+
+    private boolean started;
+    private boolean finished;
+    private boolean truncated;
+    private boolean rootIsArray;
+    private int depth;
+    private TokenBuffer buffer;
+    private char pendingHighSurrogate;
+    private int skippedValues;
+
+    public LlmJsonStreamParser(ObjectMapper objectMapper, Class<T> valueType) {
+        this.objectMapper = objectMapper;
+        this.valueType = valueType;
+        try {
+            this.parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new IllegalStateException("无法创建非阻塞 JSON 解析器", e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * 一次性解析完整的大模型输出，同时返回输出是否被截断
+     */
+    public static <T> Parsed<T> parse(ObjectMapper objectMapper, String text, Class<T> valueType) {
+        LlmJsonStreamParser<T> streamParser = new LlmJsonStreamParser<>(objectMapper, valueType);
+        List<T> values = streamParser.feed(text);
+        values.addAll(streamParser.finish());
+        return new Parsed<>(values, streamParser.isTruncated());
+    }
+
+    /**
+     * 一次性解析完整的大模型输出，只返回已完整解析的值（不区分是否被截断）
+     */
+    public static <T> List<T> parseAll(ObjectMapper objectMapper, String text, Class<T> valueType) {
+        return parse(objectMapper, text, valueType).values();
+    }
+
+    /**
+     * 解析完整输出并返回第一个值，无有效值时返回 null（不区分是否被截断）
+     */
+    public static <T> T parseFirst(ObjectMapper objectMapper, String text, Class<T> valueType) {
+        List<T> values = parseAll(objectMapper, text, valueType);
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    /**
+     * 喂入一段增量输出，返回本次新解析完成的值
+     */
+    public List<T> feed(CharSequence chunk) {
+        List<T> values = new ArrayList<>();
+        if (chunk == null || chunk.length() == 0 || finished) {
+            return values;
+        }
+        String text = chunk.toString();
+        if (pendingHighSurrogate != 0) {
+            text = pendingHighSurrogate + text;
+            pendingHighSurrogate = 0;
+        }
+        // 代理对被切断时保留高位，与下一段拼接后再编码
+        if (Character.isHighSurrogate(text.charAt(text.length() - 1))) {
+            pendingHighSurrogate = text.charAt(text.length() - 1);
+            text = text.substring(0, text.length() - 1);
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int start = 0;
+        if (!started) {
+            start = indexOfRoot(bytes);
+            if (start < 0) {
+                return values;
+            }
+            started = true;
+        }
+        try {
+            feeder.feedInput(bytes, start, bytes.length);
+        } catch (IOException e) {
+            fail(e);
+            return values;
+        }
+        drain(values);
+        return values;
+    }
+
+    /**
+     * 输入结束，返回剩余可解析的值
+     */
+    public List<T> finish() {
+        List<T> values = new ArrayList<>();
+        if (!started || finished) {
+            return values;
+        }
+        feeder.endOfInput();
+        drain(values);
+        if (!finished) {
+            log.warn("大模型输出不完整（疑似被截断），已保留完整解析的部分");
+            finished = true;
+            truncated = true;
+        }
+        return values;
+    }
+
+    /**
+     * 根节点未闭合（输出被截断或中途格式错误）时返回 true，此时已返回的值只是部分结果
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * 已跳过（无法绑定为目标类型）的值数量
+     */
+    public int getSkippedValues() {
+        return skippedValues;
+    }
+
+    /**
+     * 查找根节点起始位置；'[' 与 '{' 为 ASCII 字符，不会出现在 UTF-8 多字节序列内部
+     */
+    private static int indexOfRoot(byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '[' || bytes[i] == '{') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void drain(List<T> values) {
+        try {
+            JsonToken token;
+            while (!finished && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                onToken(token, values);
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void onToken(JsonToken token, List<T> values) throws IOException {
+        if (depth == 0) {
+            // 根节点
+            rootIsArray = token == JsonToken.START_ARRAY;
+            if (!rootIsArray) {
+                buffer = new TokenBuffer(objectMapper, false);
+                buffer.copyCurrentEvent(parser);
+            }
+            depth++;
+            return;
+        }
+
+        boolean structStart = token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY;
+        boolean structEnd = token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY;
+
+        if (rootIsArray && depth == 1) {
+            if (structEnd) {
+                // 根数组闭合
+                depth--;
+                finished = true;
+                return;
+            }
+            buffer = new TokenBuffer(objectMapper, false);
+            buffer.copyCurrentEvent(parser);
+            if (structStart) {
+                depth++;
+            } else {
+                // 标量元素
+                bind(values);
+            }
+            return;
+        }
+
+        buffer.copyCurrentEvent(parser);
+        if (structStart) {
+            depth++;
+        } else if (structEnd) {
+            depth--;
+            if (depth == (rootIsArray ? 1 : 0)) {
+                bind(values);
+                if (!rootIsArray) {
+                    finished = true;
+                }
+            }
+        }
+    }
+
+    private void bind(List<T> values) {
+        try (JsonParser valueParser = buffer.asParser()) {
+            values.add(objectMapper.readValue(valueParser, valueType));
+        } catch (IOException e) {
+            skippedValues++;
+            log.warn("JSON 元素无法绑定为 {}，跳过该元素: {}", valueType.getSimpleName(), e.getMessage());
+        } finally {
+            buffer = null;
+        }
+    }
+
+    private void fail(IOException e) {
+        log.warn("大模型输出 JSON 格式错误，已保留完整解析的部分: {}", e.getMessage());
+        finished = true;
+        truncated = true;
+        buffer = null;
+    }
+
+    /**
+     * 整段解析结果：已完整解析的值，以及输出是否被截断
+     */
+    public record Parsed<T>(List<T> values, boolean truncated) {
+    }
+}
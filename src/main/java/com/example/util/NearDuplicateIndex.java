@@ -0,0 +1,243 @@
+package com.example.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 近似重复文本索引（MinHash + LSH），不依赖大模型、结果确定
+ * 1. 文本去掉空白与标点、转小写后取字符 3-gram，每个 3-gram 哈希一次
+ * 2. 标题（标题为空时取整体文本）的 3-gram 派生 32 个 MinHash 值，分为 8 个 band（每个 4 行），
+ *    band 与分组、数字序列一起作为分桶键，任一 band 相同即成为候选，只与候选比较，避免两两比较；
+ *    同一候选在多个 band 中出现只比较一次，每次加入最多比较 MAX_CANDIDATES 个候选
+ * 3. 候选需同时满足：同一分组，整体与标题 3-gram 集合的 Jaccard 相似度均不低于阈值，且文本中的数字序列一致
+ *    （标题与数字区分的是“为空/超长”“0 位/21 位”这类仅差几个字的边界用例，不能按重复合并）
+ * 按加入顺序保留首次出现的文本；非线程安全，单次请求内使用
+ */
+public final class NearDuplicateIndex {
+
+    private static final int SHINGLE = 3;
+    private static final int BANDS = 8;
+    private static final int ROWS = 4;
+    private static final int HASHES = BANDS * ROWS;
+    // 每次加入最多比较的候选数（大量标题雷同的用例落入同一分桶时避免退化为两两比较）
+    private static final int MAX_CANDIDATES = 256;
+    private static final long[] SEEDS = new long[HASHES];
+
+    static {
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < HASHES; i++) {
+            seed = mix(seed + 0x9E3779B97F4A7C15L);
+            SEEDS[i] = seed;
+        }
+    }
+
+    private final double threshold;
+    private final List<Map<Long, List<Entry>>> bands = new ArrayList<>(BANDS);
+    private int size;
+    // 本次加入的编号，用于跳过已在其他 band 中比较过的候选
+    private int round;
+
+    public NearDuplicateIndex(double threshold) {
+        this.threshold = threshold;
+        for (int i = 0; i < BANDS; i++) {
+            bands.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * 与已收录文本近似重复时返回其 id 且不收录；否则收录并返回 -1
+     * @param id 调用方为该文本指定的编号（如在原列表中的下标）
+     * @param group 分组，只与同组文本比较，可为 null
+     * @param title 标题，用于分桶与比较
+     * @param body 完整文本（通常含标题），用于比较
+     */
+    public int addIfAbsent(int id, String group, String title, String body) {
+        Entry entry = new Entry(id, normalize(body), shingles(normalize(title)), (group == null ? "" : group) + "|" + digits(body));
+        long[] signature = signature(entry.titleShingles.length > 0 ? entry.titleShingles : entry.bodyShingles());
+        long keyHash = mix(entry.key.hashCode());
+        long[] bandKeys = new long[BANDS];
+        int budget = MAX_CANDIDATES;
+        round++;
+        for (int band = 0; band < BANDS; band++) {
+            bandKeys[band] = bandKey(signature, band, keyHash);
+            List<Entry> candidates = bands.get(band).get(bandKeys[band]);
+            if (candidates == null) {
+                continue;
+            }
+            for (int i = candidates.size() - 1; i >= Math.max(0, candidates.size() - MAX_CANDIDATES) && budget > 0; i--) {
+                Entry candidate = candidates.get(i);
+                if (candidate.round == round) {
+                    continue;
+                }
+                candidate.round = round;
+                budget--;
+                if (isDuplicate(entry, candidate)) {
+                    return candidate.id;
+                }
+            }
+        }
+        for (int band = 0; band < BANDS; band++) {
+            bands.get(band).computeIfAbsent(bandKeys[band], key -> new ArrayList<>(1)).add(entry);
+        }
+        size++;
+        return -1;
+    }
+
+    /**
+     * 已收录（非重复）的文本数
+     */
+    public int size() {
+        return size;
+    }
+
+    private boolean isDuplicate(Entry entry, Entry candidate) {
+        return entry.key.equals(candidate.key)
+                && jaccard(entry.titleShingles, candidate.titleShingles) >= threshold
+                && jaccard(entry.bodyShingles(), candidate.bodyShingles()) >= threshold;
+    }
+
+    private static long[] signature(long[] shingles) {
+        long[] signature = new long[HASHES];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (long shingle : shingles) {
+            for (int i = 0; i < HASHES; i++) {
+                long hash = mix(shingle ^ SEEDS[i]);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private static long bandKey(long[] signature, int band, long keyHash) {
+        long key = band ^ keyHash;
+        for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+            key = mix(key * 31 + signature[row]);
+        }
+        return key;
+    }
+
+    /**
+     * 字符 3-gram 的哈希集合（升序、去重），不足 3 个字符时整体作为一个 gram
+     */
+    private static long[] shingles(String text) {
+        int length = text.length();
+        if (length == 0) {
+            return new long[0];
+        }
+        if (length < SHINGLE) {
+            return new long[]{mix(text.hashCode())};
+        }
+        long[] hashes = new long[length - SHINGLE + 1];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = mix(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        Arrays.sort(hashes);
+        int distinct = 0;
+        for (int i = 0; i < hashes.length; i++) {
+            if (i == 0 || hashes[i] != hashes[i - 1]) {
+                hashes[distinct++] = hashes[i];
+            }
+        }
+        return distinct == hashes.length ? hashes : Arrays.copyOf(hashes, distinct);
+    }
+
+    private static double jaccard(long[] a, long[] b) {
+        if (a.length == 0 && b.length == 0) {
+            return 1;
+        }
+        int i = 0;
+        int j = 0;
+        int common = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) common / (a.length + b.length - common);
+    }
+
+    /**
+     * 保留字母与数字并转小写，去掉空白与标点
+     */
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 文本中的数字序列（各段数字以逗号分隔）
+     */
+    private static String digits(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        boolean inNumber = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                sb.append(c);
+                inNumber = true;
+            } else if (inNumber) {
+                sb.append(',');
+                inNumber = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * SplitMix64 终结函数
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static final class Entry {
+        private final int id;
+        private final String body;
+        private final long[] titleShingles;
+        // 分组 + 数字序列，须完全相同
+        private final String key;
+        // 整体文本的 3-gram 只在成为候选时计算
+        private long[] bodyShingles;
+        // 最近一次被比较时的加入编号
+        private int round;
+
+        private Entry(int id, String body, long[] titleShingles, String key) {
+            this.id = id;
+            this.body = body;
+            this.titleShingles = titleShingles;
+            this.key = key;
+        }
+
+        private long[] bodyShingles() {
+            if (bodyShingles == null) {
+                bodyShingles = shingles(body);
+            }
+            return bodyShingles;
+        }
+    }
+}
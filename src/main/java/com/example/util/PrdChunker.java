@@ -0,0 +1,130 @@
+package com.example.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按 token 预算切分超长 PRD
+ * 优先在段落（空行/标题）边界切分；单个段落超出预算时按句子切分，仍超出时按字符硬切。
+ * 相邻分块之间保留不超过 overlapTokens 的尾部段落作为重叠上下文
+ */
+public final class PrdChunker {
+
+    private PrdChunker() {
+    }
+
+    public static List<String> chunk(String prd, int maxTokens, int overlapTokens) {
+        List<String> units = new ArrayList<>();
+        for (String paragraph : splitParagraphs(prd)) {
+            if (TokenEstimator.estimate(paragraph) <= maxTokens) {
+                units.add(paragraph);
+            } else {
+                units.addAll(splitOversized(paragraph, maxTokens));
+            }
+        }
+
+        List<String> chunks = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        List<Integer> currentTokens = new ArrayList<>();
+        int total = 0;
+        boolean hasNew = false;
+        for (String unit : units) {
+            int tokens = TokenEstimator.estimate(unit);
+            if (hasNew && total + tokens > maxTokens) {
+                chunks.add(String.join("", current));
+                // 从上一分块尾部保留重叠段落，且保证加入新段落后不超预算
+                List<String> overlap = new ArrayList<>();
+                List<Integer> overlapSizes = new ArrayList<>();
+                int overlapTotal = 0;
+                for (int i = current.size() - 1; i >= 0; i--) {
+                    int size = currentTokens.get(i);
+                    if (overlapTotal + size > overlapTokens || overlapTotal + size + tokens > maxTokens) {
+                        break;
+                    }
+                    overlap.add(0, current.get(i));
+                    overlapSizes.add(0, size);
+                    overlapTotal += size;
+                }
+                current = overlap;
+                currentTokens = overlapSizes;
+                total = overlapTotal;
+                hasNew = false;
+            }
+            current.add(unit);
+            currentTokens.add(tokens);
+            total += tokens;
+            hasNew = true;
+        }
+        if (hasNew) {
+            chunks.add(String.join("", current));
+        }
+        return chunks;
+    }
+
+    /**
+     * 按空行或标题行切分段落，保留原始换行
+     */
+    private static List<String> splitParagraphs(String prd) {
+        List<String> paragraphs = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : prd.split("(?<=\n)")) {
+            String trimmed = line.trim();
+            boolean boundary = trimmed.isEmpty() || trimmed.startsWith("#");
+            if (boundary && current.length() > 0 && !current.toString().isBlank()) {
+                paragraphs.add(current.toString());
+                current.setLength(0);
+            }
+            current.append(line);
+        }
+        if (current.length() > 0) {
+            paragraphs.add(current.toString());
+        }
+        return paragraphs;
+    }
+
+    private static List<String> splitOversized(String paragraph, int maxTokens) {
+        List<String> pieces = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int currentTokens = 0;
+        for (String sentence : paragraph.split("(?<=[。！？；.!?;\n])")) {
+            int tokens = TokenEstimator.estimate(sentence);
+            if (tokens > maxTokens) {
+                if (current.length() > 0) {
+                    pieces.add(current.toString());
+                    current.setLength(0);
+                    currentTokens = 0;
+                }
+                pieces.addAll(hardSplit(sentence, maxTokens));
+                continue;
+            }
+            if (currentTokens + tokens > maxTokens && current.length() > 0) {
+                pieces.add(current.toString());
+                current.setLength(0);
+                currentTokens = 0;
+            }
+            current.append(sentence);
+            currentTokens += tokens;
+        }
+        if (current.length() > 0) {
+            pieces.add(current.toString());
+        }
+        return pieces;
+    }
+
+    /**
+     * 按字符硬切：每个字符至多 1 token，按预算字符数切分即不超预算（避开代理对中间）
+     */
+    private static List<String> hardSplit(String text, int maxTokens) {
+        List<String> pieces = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            int end = Math.min(start + maxTokens, text.length());
+            if (end < text.length() && Character.isHighSurrogate(text.charAt(end - 1))) {
+                end--;
+            }
+            pieces.add(text.substring(start, end));
+            start = end;
+        }
+        return pieces;
+    }
+}
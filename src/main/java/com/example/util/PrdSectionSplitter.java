@@ -0,0 +1,51 @@
+package com.example.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * PRD 章节切分工具
+ * 按标题行（Markdown 标题、"一、"、"1."/"1.2" 等编号标题）切分，过短的章节并入上一章节
+ */
+public final class PrdSectionSplitter {
+
+    private static final Pattern HEADING = Pattern.compile(
+            "^(#{1,6}\\s+\\S.*|[一二三四五六七八九十]+[、.．]\\s*\\S.*|\\d+(\\.\\d+)*[、.．\\s]\\s*\\S.*)$");
+
+    // 编号标题的最大长度，超过视为正文（如 "1. 用户输入手机号后……" 这类长句）
+    private static final int MAX_NUMBERED_HEADING_LENGTH = 30;
+
+    private PrdSectionSplitter() {
+    }
+
+    public static List<String> split(String prd, int minSectionChars) {
+        List<String> sections = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : prd.split("\\r?\\n", -1)) {
+            if (isHeading(line) && current.length() >= minSectionChars) {
+                sections.add(current.toString());
+                current.setLength(0);
+            }
+            current.append(line).append('\n');
+        }
+        if (current.length() > 0) {
+            String tail = current.toString();
+            // 末尾章节过短时并入上一章节
+            if (tail.length() < minSectionChars && !sections.isEmpty()) {
+                sections.set(sections.size() - 1, sections.get(sections.size() - 1) + tail);
+            } else {
+                sections.add(tail);
+            }
+        }
+        return sections;
+    }
+
+    private static boolean isHeading(String line) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || !HEADING.matcher(trimmed).matches()) {
+            return false;
+        }
+        return trimmed.startsWith("#") || trimmed.length() <= MAX_NUMBERED_HEADING_LENGTH;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.util;
+
+/**
+ * 本地 token 数估算（无需调用远端分词接口）
+ * 中日韩字符与全角标点按 1 token 计；连续的英文字母/数字按每 4 个字符 1 token 计；
+ * 其余可见符号按 1 token 计，空白字符不计。估算值偏保守，用于切分与预算控制
+ */
+public final class TokenEstimator {
+
+    private static final int ASCII_CHARS_PER_TOKEN = 4;
+
+    private TokenEstimator() {
+    }
+
+    public static int estimate(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+        int tokens = 0;
+        int asciiRun = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 128 && Character.isLetterOrDigit(c)) {
+                asciiRun++;
+                continue;
+            }
+            if (asciiRun > 0) {
+                tokens += (asciiRun + ASCII_CHARS_PER_TOKEN - 1) / ASCII_CHARS_PER_TOKEN;
+                asciiRun = 0;
+            }
+            if (Character.isWhitespace(c) || Character.isLowSurrogate(c)) {
+                continue;
+            }
+            tokens++;
+        }
+        if (asciiRun > 0) {
+            tokens += (asciiRun + ASCII_CHARS_PER_TOKEN - 1) / ASCII_CHARS_PER_TOKEN;
+        }
+        return tokens;
+    }
+}
@@ -86,44 +86,24 @@ document.getElementById('generate-btn').addEventListener('click', async () => {
     generateBtn.disabled = true;
     
     try {
-        // 第一步：生成测试用例
+        // 生成并在服务端评测测试用例（评测与生成重叠进行，用例无需再上传）
+        loadingEl.querySelector('p').textContent = '正在生成并评测测试用例，请稍候...';
         const response = await fetch('/api/testcase/generate', {
             method: 'POST',
             headers: {
                 'Content-Type': 'application/json',
             },
-            body: JSON.stringify({ prd: prdText })
+            body: JSON.stringify({ prd: prdText, evaluate: true })
         });
         
         const data = await response.json();
         
         if (response.ok && data.success) {
-            // 第二步：自动评测测试用例
-            loadingEl.querySelector('p').textContent = '正在评测测试用例，请稍候...';
-            try {
-                const evalResponse = await fetch('/api/testcase/evaluate', {
-                    method: 'POST',
-                    headers: {
-                        'Content-Type': 'application/json',
-                    },
-                    body: JSON.stringify({ 
-                        prd: prdText,
-                        testCases: data.testCases 
-                    })
-                });
-                
-                const evalData = await evalResponse.json();
-                
-                if (evalResponse.ok && evalData.success) {
-                    // 显示测试用例和整体评分
-                    displayTestCasesWithEvaluation(data.testCases, evalData.score);
-                } else {
-                    // 评测失败，只显示测试用例
-                    displayTestCases(data.testCases);
-                }
-            } catch (evalError) {
-                console.error('评测失败:', evalError);
-                // 评测失败，只显示测试用例
+            if (data.evaluation) {
+                // 显示测试用例和整体评分
+                displayTestCasesWithEvaluation(data.testCases, data.evaluation);
+            } else {
+                // 评测结果缺失，只显示测试用例
                 displayTestCases(data.testCases);
             }
             
@@ -0,0 +1,118 @@
+package com.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 规则引擎功能点提取：单遍扫描与原正则实现的输出一致性
+ */
+class TestCaseServiceOldTest {
+
+    private static final Pattern LEGACY_FEATURE_PATTERN = Pattern.compile(
+            "(?:功能|需求|特性|模块)[：:](.*?)(?=\\n|$|(?:功能|需求|特性|模块)[：:])",
+            Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
+
+    private static final String[] TOKENS = {
+            "功能：", "需求:", "特性：", "模块:", "功能", "能：", "需求", "：", ":",
+            "用户登录", "支持导出报表", "abcdef", "x", " ", "\t",
+            "\n", "\n\n", "\n\n\n", "\r", "\r\n", "\u2028", "\u2029", "\u0085"
+    };
+
+    private final TestCaseServiceOld service = new TestCaseServiceOld();
+
+    @Test
+    void markedFeaturesEndAtAnyLineTerminator() {
+        assertSameAsLegacy("功能：用户可以登录系统\r需求：支持找回密码功能\r\n特性：记住登录状态");
+        assertSameAsLegacy("功能：用户可以登录系统\u2028模块：权限管理与角色配置\u2029功能：审计日志记录\u0085结尾");
+    }
+
+    @Test
+    void featureEndsAtNextMarkerOnSameLine() {
+        assertSameAsLegacy("功能：用户登录与注销 需求:导出全部报表数据 模块：功能：嵌套标记之后的描述");
+    }
+
+    @Test
+    void trailingMarker() {
+        assertSameAsLegacy("功能：用户可以登录系统\n功能：");
+        assertSameAsLegacy("功能：用户可以登录系统\n功能");
+        assertSameAsLegacy("功能：用户可以登录系统 需求:");
+        assertSameAsLegacy("需求：");
+    }
+
+    @Test
+    void paragraphsSplitOnBlankLines() {
+        String paragraph = "这是一段没有功能标记的需求描述，长度超过二十个字符。";
+        assertSameAsLegacy(paragraph + "\n\n\n" + paragraph + "\n\n\n\n" + paragraph + "\n\n");
+        assertSameAsLegacy("\n\n\n" + paragraph + "\r\n\r\n" + paragraph + "\n \n" + paragraph);
+    }
+
+    @Test
+    void keepsOnlyTheFirstFeatures() {
+        StringBuilder prd = new StringBuilder();
+        for (int i = 0; i < 25; i++) {
+            prd.append("功能：第").append(i).append("个功能点描述\n");
+        }
+        assertSameAsLegacy(prd.toString());
+        StringBuilder paragraphs = new StringBuilder();
+        for (int i = 0; i < 25; i++) {
+            paragraphs.append("第").append(i).append("段没有功能标记的需求描述，长度超过二十个字符。\n\n");
+        }
+        assertSameAsLegacy(paragraphs.toString());
+    }
+
+    @Test
+    void randomizedInputsMatchLegacy() {
+        Random random = new Random(20241017L);
+        for (int round = 0; round < 20000; round++) {
+            StringBuilder prd = new StringBuilder();
+            int tokens = random.nextInt(120);
+            for (int i = 0; i < tokens; i++) {
+                prd.append(TOKENS[random.nextInt(TOKENS.length)]);
+            }
+            assertSameAsLegacy(prd.toString());
+        }
+    }
+
+    private void assertSameAsLegacy(String prd) {
+        assertEquals(legacyExtractFeatures(prd), service.extractFeatures(prd), "输入: " + escape(prd));
+    }
+
+    /**
+     * 替换前的实现（正则 + split），功能点均短于 max-feature-chars，不涉及截断
+     */
+    private static List<String> legacyExtractFeatures(String prd) {
+        List<String> features = new ArrayList<>();
+        Matcher matcher = LEGACY_FEATURE_PATTERN.matcher(prd);
+        while (matcher.find()) {
+            String feature = matcher.group(1).trim();
+            if (!feature.isEmpty() && feature.length() > 5) {
+                features.add(feature);
+            }
+        }
+        if (features.isEmpty()) {
+            for (String para : prd.split("\n\n")) {
+                para = para.trim();
+                if (para.length() > 20 && para.length() < 500) {
+                    features.add(para);
+                }
+            }
+        }
+        return features.size() > 10 ? features.subList(0, 10) : features;
+    }
+
+    private static String escape(String text) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            sb.append(c < ' ' || c == '\u0085' || c == '\u2028' || c == '\u2029'
+                    ? String.format("\\u%04x", (int) c) : String.valueOf(c));
+        }
+        return sb.toString();
+    }
+}
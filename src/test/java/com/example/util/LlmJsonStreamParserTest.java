@@ -0,0 +1,130 @@
+package com.example.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LlmJsonStreamParserTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void skipsCodeFence() {
+        LlmJsonStreamParser.Parsed<Item> parsed = parse("好的，结果如下：\n```json\n[{\"name\":\"a\"},{\"name\":\"b\"}]\n```\n以上。");
+        assertEquals(List.of("a", "b"), names(parsed.values()));
+        assertFalse(parsed.truncated());
+    }
+
+    @Test
+    void allowsComments() {
+        LlmJsonStreamParser.Parsed<Item> parsed = parse("[\n// 第一条\n{\"name\":\"a\"}, /* 第二条 */ {\"name\":\"b\" /* 行内 */}\n]");
+        assertEquals(List.of("a", "b"), names(parsed.values()));
+        assertFalse(parsed.truncated());
+    }
+
+    @Test
+    void keepsDoubleSlashInsideStrings() {
+        LlmJsonStreamParser.Parsed<Item> parsed = parse("[{\"name\":\"https://example.com//a/*b*/c\"}]");
+        assertEquals(List.of("https://example.com//a/*b*/c"), names(parsed.values()));
+        assertFalse(parsed.truncated());
+    }
+
+    @Test
+    void allowsTrailingCommas() {
+        LlmJsonStreamParser.Parsed<Item> parsed = parse("[{\"name\":\"a\",},{\"name\":\"b\"},]");
+        assertEquals(List.of("a", "b"), names(parsed.values()));
+        assertFalse(parsed.truncated());
+    }
+
+    @Test
+    void objectRootIgnoresTrailingText() {
+        LlmJsonStreamParser.Parsed<Item> parsed = parse("```json\n{\"name\":\"a\"}\n```\n{\"name\":\"b\"}");
+        assertEquals(List.of("a"), names(parsed.values()));
+        assertFalse(parsed.truncated());
+    }
+
+    @Test
+    void emitsElementsAsSoonAsTheyClose() {
+        LlmJsonStreamParser<Item> parser = new LlmJsonStreamParser<>(objectMapper, Item.class);
+        assertEquals(List.of(), names(parser.feed("```json\n[{\"name\":")));
+        assertEquals(List.of("a"), names(parser.feed("\"a\"}, {\"name\"")));
+        assertEquals(List.of("b"), names(parser.feed(":\"b\"}]")));
+        assertEquals(List.of(), names(parser.finish()));
+        assertFalse(parser.isTruncated());
+    }
+
+    @Test
+    void splitChunksMatchWholeInput() {
+        // 逐字符喂入：多字节中文与代理对（emoji）被切断在两段之间
+        String text = "```json\n[{\"name\":\"登录😀成功\"}, // 注释\n{\"name\":\"https://a.b//c\",},]\n```";
+        LlmJsonStreamParser<Item> parser = new LlmJsonStreamParser<>(objectMapper, Item.class);
+        List<Item> values = new ArrayList<>();
+        for (int i = 0; i < text.length(); i++) {
+            values.addAll(parser.feed(text.substring(i, i + 1)));
+        }
+        values.addAll(parser.finish());
+        assertEquals(List.of("登录😀成功", "https://a.b//c"), names(values));
+        assertFalse(parser.isTruncated());
+        assertEquals(names(parse(text).values()), names(values));
+    }
+
+    @Test
+    void reportsTruncation() {
+        LlmJsonStreamParser.Parsed<Item> parsed = parse("[{\"name\":\"a\"},{\"name\":\"b");
+        assertEquals(List.of("a"), names(parsed.values()));
+        assertTrue(parsed.truncated());
+    }
+
+    @Test
+    void reportsTruncatedObjectRoot() {
+        LlmJsonStreamParser.Parsed<Item> parsed = parse("{\"name\":\"a\", \"score\": 8");
+        assertTrue(parsed.values().isEmpty());
+        assertTrue(parsed.truncated());
+        assertNull(LlmJsonStreamParser.parseFirst(objectMapper, "{\"name\":\"a\"", Item.class));
+    }
+
+    @Test
+    void reportsMalformedOutputAsTruncated() {
+        LlmJsonStreamParser.Parsed<Item> parsed = parse("[{\"name\":\"a\"}, {\"name\" \"b\"}]");
+        assertEquals(List.of("a"), names(parsed.values()));
+        assertTrue(parsed.truncated());
+    }
+
+    @Test
+    void skipsValuesThatCannotBind() {
+        LlmJsonStreamParser<Item> parser = new LlmJsonStreamParser<>(objectMapper, Item.class);
+        List<Item> values = parser.feed("[{\"name\":\"a\",\"score\":\"高\"},{\"name\":\"b\",\"score\":3}]");
+        values.addAll(parser.finish());
+        assertEquals(List.of("b"), names(values));
+        assertEquals(1, parser.getSkippedValues());
+        assertFalse(parser.isTruncated());
+    }
+
+    @Test
+    void noJsonIsEmptyButNotTruncated() {
+        LlmJsonStreamParser.Parsed<Map> parsed = LlmJsonStreamParser.parse(objectMapper, "抱歉，无法生成。", Map.class);
+        assertTrue(parsed.values().isEmpty());
+        assertFalse(parsed.truncated());
+    }
+
+    private LlmJsonStreamParser.Parsed<Item> parse(String text) {
+        return LlmJsonStreamParser.parse(objectMapper, text, Item.class);
+    }
+
+    private static List<String> names(List<Item> items) {
+        return items.stream().map(item -> item.name).toList();
+    }
+
+    static class Item {
+        public String name;
+        public Integer score;
+    }
+}
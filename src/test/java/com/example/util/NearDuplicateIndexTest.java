@@ -0,0 +1,76 @@
+package com.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+
+class NearDuplicateIndexTest {
+
+    private static final String SHARED_STEPS = "前置条件：已打开注册页面\n1. 输入手机号 13800000000\n2. 输入验证码\n3. 点击注册按钮\n预期：页面提示错误信息，注册按钮保持可用";
+
+    private final NearDuplicateIndex index = new NearDuplicateIndex(0.8);
+
+    @Test
+    void mergesCaseThatDiffersOnlyInWhitespaceAndPunctuation() {
+        assertEquals(-1, index.addIfAbsent(0, null, "用户登录成功", "用户登录成功\n输入正确的账号和密码，点击登录。\n进入首页"));
+        assertEquals(0, index.addIfAbsent(1, null, "用户登录成功！", "用户登录 成功\n输入正确的账号和密码 点击登录\n进入首页。"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void keepsEmptyAndTooLongBoundaryCases() {
+        // 步骤与预期完全相同，只有标题差两个字
+        assertEquals(-1, index.addIfAbsent(0, null, "用户名为空时提示错误", "用户名为空时提示错误\n" + SHARED_STEPS));
+        assertEquals(-1, index.addIfAbsent(1, null, "用户名超长时提示错误", "用户名超长时提示错误\n" + SHARED_STEPS));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void keepsCasesThatDifferOnlyInNumbers() {
+        assertEquals(-1, index.addIfAbsent(0, null, "密码长度为0位时提示错误", "密码长度为0位时提示错误\n" + SHARED_STEPS));
+        assertEquals(-1, index.addIfAbsent(1, null, "密码长度为21位时提示错误", "密码长度为21位时提示错误\n" + SHARED_STEPS));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void neverMergesAcrossGroups() {
+        String body = "用户登录成功\n" + SHARED_STEPS;
+        assertEquals(-1, index.addIfAbsent(0, "F1", "用户登录成功", body));
+        assertEquals(-1, index.addIfAbsent(1, "F2", "用户登录成功", body));
+        assertEquals(-1, index.addIfAbsent(2, null, "用户登录成功", body));
+        assertEquals(0, index.addIfAbsent(3, "F1", "用户登录成功", body));
+        assertEquals(1, index.addIfAbsent(4, "F2", "用户登录成功", body));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void emptyTitleFallsBackToBody() {
+        assertEquals(-1, index.addIfAbsent(0, null, "", SHARED_STEPS));
+        assertEquals(0, index.addIfAbsent(1, null, null, SHARED_STEPS));
+        assertEquals(-1, index.addIfAbsent(2, null, "", "完全不同的另一条用例：导出报表并校验列头"));
+    }
+
+    @Test
+    void tenThousandCasesWithSameTitleStayWithinBudget() {
+        // 标题相同、正文互不相似：全部落入同一分桶，每次最多比较 MAX_CANDIDATES 个候选
+        Random random = new Random(42);
+        assertTimeout(Duration.ofSeconds(10), () -> {
+            for (int i = 0; i < 10_000; i++) {
+                assertEquals(-1, index.addIfAbsent(i, "F1", "批量导入用户", "批量导入用户\n" + randomText(random, 60)));
+            }
+        });
+        assertEquals(10_000, index.size());
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) (0x4E00 + random.nextInt(5000)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.util;
+
+import com.example.model.TestCase;
+import com.example.service.PipelineMetrics;
+import com.example.service.TestCaseDeduplicator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+
+class TestCaseDeduplicatorTest {
+
+    private static final List<String> SHARED_STEPS = List.of("打开注册页面", "输入手机号 13800000000 与验证码", "点击注册按钮");
+
+    private final TestCaseDeduplicator deduplicator = new TestCaseDeduplicator(new PipelineMetrics(new SimpleMeterRegistry()));
+
+    @Test
+    void dropsDuplicateAndKeepsFirstOccurrence() {
+        TestCase first = new TestCase("TC-001 用户登录成功", "已注册账号", List.of("输入账号和密码", "点击登录"), "进入首页");
+        TestCase second = new TestCase("TC-002 用户登录成功", "已注册账号", List.of("输入账号和密码。", "点击登录"), "进入首页");
+        TestCase other = new TestCase("TC-003 导出报表", "已登录", "点击导出按钮", "下载 xlsx 文件");
+
+        List<TestCase> unique = deduplicator.dedupe(List.of(first, second, other));
+
+        assertEquals(2, unique.size());
+        assertSame(first, unique.get(0));
+        assertSame(other, unique.get(1));
+    }
+
+    @Test
+    void keepsEmptyAndTooLongBoundaryCases() {
+        List<TestCase> testCases = List.of(
+                new TestCase("用户名为空时提示错误", "已打开注册页面", SHARED_STEPS, "提示错误信息"),
+                new TestCase("用户名超长时提示错误", "已打开注册页面", SHARED_STEPS, "提示错误信息"));
+        assertArrayEquals(new int[]{-1, -1}, deduplicator.duplicateOf(testCases));
+        assertEquals(2, deduplicator.dedupe(testCases).size());
+    }
+
+    @Test
+    void keepsCasesThatDifferOnlyInNumbers() {
+        List<TestCase> testCases = List.of(
+                new TestCase("密码长度为 0 位时提示错误", "已打开注册页面", SHARED_STEPS, "提示错误信息"),
+                new TestCase("密码长度为 21 位时提示错误", "已打开注册页面", SHARED_STEPS, "提示错误信息"));
+        assertArrayEquals(new int[]{-1, -1}, deduplicator.duplicateOf(testCases));
+        assertEquals(2, deduplicator.dedupe(testCases).size());
+    }
+
+    @Test
+    void neverMergesCasesOfDifferentFunctionPoints() {
+        List<TestCase> testCases = List.of(
+                linked("F1", "用户登录成功"), linked("F2", "用户登录成功"), linked("F1", "用户登录成功"));
+        assertArrayEquals(new int[]{-1, -1, 0}, deduplicator.duplicateOf(testCases));
+        assertEquals(2, deduplicator.dedupe(testCases).size());
+    }
+
+    @Test
+    void comparesStepsGivenAsObjects() {
+        List<TestCase> testCases = List.of(
+                new TestCase("修改昵称", null, List.of(Map.of("action", "输入新昵称", "expected", "保存成功")), null),
+                new TestCase("修改昵称", null, List.of(Map.of("action", "输入新昵称", "expected", "保存成功")), null),
+                new TestCase("修改昵称", null, List.of(Map.of("action", "清空昵称后保存", "expected", "提示昵称不能为空")), null));
+        assertArrayEquals(new int[]{-1, 0, -1}, deduplicator.duplicateOf(testCases));
+    }
+
+    @Test
+    void filterMatchesDedupe() {
+        List<TestCase> testCases = List.of(
+                new TestCase("1. 用户登录成功", "已注册账号", "输入账号和密码后点击登录", "进入首页"),
+                new TestCase("2. 用户登录成功", "已注册账号", "输入账号和密码后点击登录", "进入首页"),
+                new TestCase("3. 用户名为空时提示错误", "已打开注册页面", SHARED_STEPS, "提示错误信息"));
+        TestCaseDeduplicator.Filter filter = deduplicator.newFilter();
+        List<TestCase> accepted = new ArrayList<>();
+        for (TestCase testCase : testCases) {
+            if (filter.accept(testCase)) {
+                accepted.add(testCase);
+            }
+        }
+        filter.finish();
+        assertEquals(deduplicator.dedupe(testCases), accepted);
+        assertEquals(67, deduplicator.nonRedundancy(testCases));
+    }
+
+    @Test
+    void tenThousandCasesWithinBudget() {
+        // 少量模板组合出的高相似度用例，接近分桶的最坏情况：5 × 5 个标题模板分布在 20 个功能点下，共 100 种组合
+        List<TestCase> testCases = new ArrayList<>(10_000);
+        String[] subjects = {"用户名", "密码", "手机号", "邮箱", "验证码"};
+        String[] conditions = {"为空", "超长", "含特殊字符", "格式正确", "已被占用"};
+        for (int i = 0; i < 10_000; i++) {
+            String title = subjects[i % subjects.length] + conditions[i / subjects.length % conditions.length] + "时提交注册";
+            testCases.add(linked("F" + (i % 20), title));
+        }
+        int[] duplicateOf = assertTimeout(Duration.ofSeconds(10), () -> deduplicator.duplicateOf(testCases));
+        assertEquals(100, Arrays.stream(duplicateOf).filter(duplicate -> duplicate < 0).count());
+    }
+
+    private static TestCase linked(String functionPointId, String title) {
+        TestCase testCase = new TestCase(title, "已打开注册页面", SHARED_STEPS, "提示对应信息");
+        testCase.setFunctionPointId(functionPointId);
+        return testCase;
+    }
+}